@@ -32,16 +32,17 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JMenuBar;
 
@@ -57,6 +58,11 @@ import lib.apple.eawt.AppEvent.QuitEvent;
 import lib.apple.eawt.AppEvent.ScreenSleepEvent;
 import lib.apple.eawt.AppEvent.SystemSleepEvent;
 import lib.apple.eawt.AppEvent.UserSessionEvent;
+import lib.apple.monitor.EventTraceRecorder;
+import lib.apple.monitor.EventType;
+import lib.apple.monitor.HandlerAccounting;
+import lib.apple.monitor.Metrics;
+import lib.apple.monitor.StartupTrace;
 
 /**
  * The <code>Application</code> class allows you to integrate your Java application with the native Mac OS X environment.
@@ -90,6 +96,16 @@ public final class Application {
 	@SuppressWarnings("deprecation")
 	private static final ConcurrentMap<ApplicationListener, Object> APPLICATION_MAP = new ConcurrentHashMap<>();
 	
+	static {
+		Metrics.registerRegistry("Application", "appForegroundListeners", FOREGROUND_MAP);
+		Metrics.registerRegistry("Application", "appHiddenListeners", HIDDEN_MAP);
+		Metrics.registerRegistry("Application", "appReOpenedListeners", REOPENED_MAP);
+		Metrics.registerRegistry("Application", "screenSleepListeners", SCREEN_MAP);
+		Metrics.registerRegistry("Application", "systemSleepListeners", SYSTEM_MAP);
+		Metrics.registerRegistry("Application", "userSessionListeners", USER_MAP);
+		Metrics.registerRegistry("Application", "applicationListeners", APPLICATION_MAP);
+	}
+	
 	private static Object application = null;
 	private static Class<?> _appEventListenerClass = null;
 	private static Class<?> _appForegroundListenerClass = null;
@@ -110,40 +126,46 @@ public final class Application {
 	private static ClassLoader loader = null;
 	
 	static {
+		long init = StartupTrace.initializing();
 		try {
+			boolean standIn = Boolean.getBoolean("lib.apple.replay.standIn");
 			Path java = Paths.get("/System/Library/Java");
-			if (Files.exists(java, LinkOption.NOFOLLOW_LINKS)) {
+			if (!standIn && StartupTrace.exists(Application.class, java)) {
 				ClassLoader sys_loader = ClassLoader.getSystemClassLoader();
 				if (URLClassLoader.class.isAssignableFrom(sys_loader.getClass())) {
 					Method addUrl = URLClassLoader.class.getDeclaredMethod("addURL", URL.class);
 					doPrivileged(addUrl);
-					addUrl.invoke(sys_loader, java.toUri().toURL());
+					StartupTrace.addURL(Application.class, addUrl, sys_loader, java.toUri().toURL());
 				}
 			}
 			
-			Class<?> appClass = Class.forName("com.apple.eawt.Application");
+			// The stand-in binds the bridges to the library's own interfaces for replaying recorded events
+			String eawt = (standIn ? "lib.apple.eawt." : "com.apple.eawt.");
+			Class<?> appClass = StartupTrace.forName(Application.class, standIn ? "lib.apple.replay.StandInApplication" : "com.apple.eawt.Application");
 			loader = appClass.getClassLoader();
-			application = appClass.getMethod("getApplication").invoke(null);
-			_appEventListenerClass = Class.forName("com.apple.eawt.AppEventListener");
-			_appForegroundListenerClass = Class.forName("com.apple.eawt.AppForegroundListener");
-			_appHiddenListenerClass = Class.forName("com.apple.eawt.AppHiddenListener");
-			_appReOpenedListenerClass = Class.forName("com.apple.eawt.AppReOpenedListener");
-			_screenSleepListenerClass = Class.forName("com.apple.eawt.ScreenSleepListener");
-			_systemSleepListenerClass = Class.forName("com.apple.eawt.SystemSleepListener");
-			_userSessionListenerClass = Class.forName("com.apple.eawt.UserSessionListener");
-			_aboutHandlerClass = Class.forName("com.apple.eawt.AboutHandler");
-			_preferencesHandlerClass = Class.forName("com.apple.eawt.PreferencesHandler");
-			_openFilesHandlerClass = Class.forName("com.apple.eawt.OpenFilesHandler");
-			_printFilesHandlerClass = Class.forName("com.apple.eawt.PrintFilesHandler");
-			_openURIHandlerClass = Class.forName("com.apple.eawt.OpenURIHandler");
-			_quitHandlerClass = Class.forName("com.apple.eawt.QuitHandler");
-			_quitStrategyClass = Class.forName("com.apple.eawt.QuitStrategy");
-			_quitResponseClass = Class.forName("com.apple.eawt.QuitResponse");
-			_applicationListenerClass = Class.forName("com.apple.eawt.ApplicationListener");
+			application = StartupTrace.getMethod(Application.class, appClass, "getApplication").invoke(null);
+			_appEventListenerClass = StartupTrace.forName(Application.class, eawt + "AppEventListener");
+			_appForegroundListenerClass = StartupTrace.forName(Application.class, eawt + "AppForegroundListener");
+			_appHiddenListenerClass = StartupTrace.forName(Application.class, eawt + "AppHiddenListener");
+			_appReOpenedListenerClass = StartupTrace.forName(Application.class, eawt + "AppReOpenedListener");
+			_screenSleepListenerClass = StartupTrace.forName(Application.class, eawt + "ScreenSleepListener");
+			_systemSleepListenerClass = StartupTrace.forName(Application.class, eawt + "SystemSleepListener");
+			_userSessionListenerClass = StartupTrace.forName(Application.class, eawt + "UserSessionListener");
+			_aboutHandlerClass = StartupTrace.forName(Application.class, eawt + "AboutHandler");
+			_preferencesHandlerClass = StartupTrace.forName(Application.class, eawt + "PreferencesHandler");
+			_openFilesHandlerClass = StartupTrace.forName(Application.class, eawt + "OpenFilesHandler");
+			_printFilesHandlerClass = StartupTrace.forName(Application.class, eawt + "PrintFilesHandler");
+			_openURIHandlerClass = StartupTrace.forName(Application.class, eawt + "OpenURIHandler");
+			_quitHandlerClass = StartupTrace.forName(Application.class, eawt + "QuitHandler");
+			_quitStrategyClass = StartupTrace.forName(Application.class, eawt + "QuitStrategy");
+			_quitResponseClass = StartupTrace.forName(Application.class, eawt + "QuitResponse");
+			_applicationListenerClass = StartupTrace.forName(Application.class, eawt + "ApplicationListener");
 		} catch (ClassNotFoundException e) {
 			application = null;
 		} catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException | MalformedURLException e) {
 			throw new RuntimeException(e);
+		} finally {
+			StartupTrace.initialized(Application.class, init);
 		}
 	}
 	
@@ -400,6 +422,21 @@ public final class Application {
 		}
 	}
 	
+	/**
+	 * Installs a handler which is passed the files the application is asked to open in chunks of at most the given size,
+	 * in place of any {@link OpenFilesHandler}. The list of files is fetched from the native event once and handed out
+	 * as views, so no copy of it is made however large it is.
+	 * The same Info.plist requirements as for {@link #setOpenFileHandler(OpenFilesHandler)} apply.
+	 *
+	 * @param handler the handler to pass the files to, or <code>null</code> to remove it
+	 * @param chunkSize the largest number of files passed in one call
+	 * @see #setOpenFileHandler(OpenFilesHandler)
+	 */
+	public static void setStreamingOpenFileHandler(final StreamingOpenFilesHandler handler, final int chunkSize) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize: " + chunkSize);
+		setOpenFileHandler(handler == null ? null : new ChunkedOpenFilesHandler(handler, chunkSize));
+	}
+	
 	/**
 	 * Installs the handler which is notified when the application is asked to print a list of files.
 	 * The {@link PrintFilesHandler#printFiles(AppEvent.PrintFilesEvent)} notifications are only sent if the Java app is a bundled application, with a <code>CFBundleDocumentTypes</code> array present in it's Info.plist.
@@ -471,6 +508,21 @@ public final class Application {
 		}
 	}
 	
+	/**
+	 * Installs a handler which decides if the application should quit by returning a {@link java.util.concurrent.Future},
+	 * in place of any {@link QuitHandler}. The quit request is answered on the AWT Event Dispatch thread once the future
+	 * is done, and cancelled if it is not done within the timeout.
+	 *
+	 * @param handler the handler that is called when the application is asked to quit, or <code>null</code> to remove it
+	 * @param timeout the longest time to wait for the decision
+	 * @param unit the unit of the timeout
+	 * @see #setQuitHandler(QuitHandler)
+	 */
+	public static void setAsyncQuitHandler(final AsyncQuitHandler handler, final long timeout, final TimeUnit unit) {
+		if (timeout <= 0) throw new IllegalArgumentException("timeout: " + timeout);
+		setQuitHandler(handler == null ? null : new FutureQuitHandler(handler, unit.toNanos(timeout)));
+	}
+	
 	/**
 	 * Sets the default strategy used to quit this application. The default is calling SYSTEM_EXIT_0.
 	 *
@@ -891,7 +943,8 @@ public final class Application {
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 			if (this._handler == null) return null;
 			
-			E _event = createEventObject(args[0], this._eventClass);
+			EventForwarder forwarder = new EventForwarder(args[0]);
+			E _event = createEventObject(forwarder, this._eventClass);
 			Class<?>[] types = new Class<?>[args.length];
 			args[0] = _event;
 			types[0] = this._eventClass;
@@ -908,7 +961,16 @@ public final class Application {
 			try {
 				Method m = this._handler.getClass().getMethod(method.getName(), types);
 				doPrivileged(m);
-				return m.invoke(this._handler, args);
+				EventType traced = (EventTraceRecorder.isRecording() || Metrics.isEnabled()
+					? EventType.forMethod(method.getName()) : null);
+				long start = (traced != null ? System.nanoTime() : 0L);
+				boolean accounted = HandlerAccounting.begin();
+				try {
+					return m.invoke(this._handler, args);
+				} finally {
+					if (accounted) HandlerAccounting.end(this._handler.getClass());
+					if (traced != null) trace(traced, forwarder._payload, start);
+				}
 			} catch (NoSuchMethodException e) {
 				// Might not get here?
 				if (method.getName().equals("equals") && args.length == 1) {
@@ -921,18 +983,30 @@ public final class Application {
 		}
 	}
 	
+	// Counts a dispatched event, and records it together with the payload the trace keeps for its type.
+	// The payload is whatever the handler was given by the event, so tracing never calls the native event again.
+	private static void trace(EventType type, Object payload, long start) {
+		long latency = System.nanoTime() - start;
+		Metrics.record(type, latency);
+		if (!EventTraceRecorder.isRecording()) return;
+		int count = 0;
+		String text = null;
+		if (payload instanceof List) {
+			count = ((List<?>) payload).size();
+		} else if (payload instanceof URI) {
+			text = payload.toString(); // Cached by the URI once it has been built
+		} else if (payload instanceof String) {
+			text = (String) payload;
+			count = 1;
+		}
+		EventTraceRecorder.record(type, start, latency, 0.0, count, text);
+	}
+	
 	// Wrapper around the actual XXEvent object in com.apple.eawt.
-	private static <E> E createEventObject(final Object appleEventObj, Class<E> eventClass) {
+	private static <E> E createEventObject(final EventForwarder forwarder, Class<E> eventClass) {
 		Class<?> proxy = Proxy.getProxyClass(Application.class.getClassLoader(), eventClass);
 		try {
-			Object event = proxy.getConstructor(InvocationHandler.class)
-				.newInstance(new InvocationHandler() {
-					@Override
-					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-						return appleEventObj.getClass().getMethod(method.getName(), method.getParameterTypes())
-							.invoke(appleEventObj, args);
-					}
-				});
+			Object event = proxy.getConstructor(InvocationHandler.class).newInstance(forwarder);
 			return eventClass.cast(event);
 		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
 		| NoSuchMethodException | SecurityException e) {
@@ -940,6 +1014,33 @@ public final class Application {
 		}
 	}
 	
+	// Forwards the calls made on an event wrapper to the actual com.apple.eawt event.
+	// The files, URI or filename handed to the handler are kept for the trace.
+	private static final class EventForwarder implements InvocationHandler {
+		private final Object _appleEvent;
+		Object _payload = null;
+		
+		EventForwarder(Object appleEvent) {
+			this._appleEvent = appleEvent;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = this._appleEvent.getClass().getMethod(method.getName(), method.getParameterTypes())
+				.invoke(this._appleEvent, args);
+			switch (method.getName()) {
+				case "getFiles":
+				case "getURI":
+				case "getFilename":
+					this._payload = result;
+					break;
+				default:
+					break;
+			}
+			return result;
+		}
+	}
+	
 	private static QuitResponse createQuitResponseWrapper(final Object appleQuitResponseObj) {
 		Class<?> proxy = Proxy.getProxyClass(Application.class.getClassLoader(), QuitResponse.class);
 		try {
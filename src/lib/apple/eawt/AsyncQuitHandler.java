@@ -0,0 +1,45 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.util.concurrent.Future;
+
+import lib.apple.eawt.AppEvent.QuitEvent;
+
+/**
+ * An implementor decides if requests to quit this application should proceed or cancel by returning the
+ * decision as a {@link Future}, instead of keeping a {@link QuitResponse} around to answer later.
+ * The library waits for the future off the calling thread and answers the request on the AWT Event Dispatch thread.
+ *
+ * @see Application#setAsyncQuitHandler(AsyncQuitHandler, long, java.util.concurrent.TimeUnit)
+ */
+public interface AsyncQuitHandler {
+	/**
+	 * Invoked when the application is asked to quit, on the thread a {@link QuitHandler} would be called on.
+	 * Quit requests made while the returned future is pending are given the same answer, without calling this method again.
+	 *
+	 * @param e the request to quit this application
+	 * @return a future resolving to <code>true</code> to proceed with the quit or <code>false</code> to cancel it,
+	 * or <code>null</code> to proceed right away. A future that fails, is cancelled or times out cancels the quit.
+	 */
+	public Future<Boolean> handleQuitRequest(final QuitEvent e);
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import lib.apple.eawt.AppEvent.OpenFilesEvent;
+
+// Passes the files of an OpenFilesEvent to a StreamingOpenFilesHandler in chunks.
+// The list is fetched from the event once, and each chunk is a view of it rather than a copy.
+final class ChunkedOpenFilesHandler implements OpenFilesHandler {
+	private final StreamingOpenFilesHandler _handler;
+	private final int _chunkSize;
+	
+	ChunkedOpenFilesHandler(StreamingOpenFilesHandler handler, int chunkSize) {
+		this._handler = handler;
+		this._chunkSize = chunkSize;
+	}
+	
+	@Override
+	public void openFiles(final OpenFilesEvent e) {
+		List<File> files = e.getFiles();
+		String searchTerm = e.getSearchTerm();
+		int count = (files == null ? 0 : files.size());
+		for (int from = 0; from < count; from += this._chunkSize) {
+			List<File> chunk = files.subList(from, Math.min(count, from + this._chunkSize));
+			this._handler.openFiles(Collections.unmodifiableList(chunk), searchTerm);
+		}
+		this._handler.openFilesCompleted(count);
+	}
+}
\ No newline at end of file
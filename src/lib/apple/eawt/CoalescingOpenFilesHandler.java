@@ -0,0 +1,185 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+import lib.apple.eawt.AppEvent.OpenFilesEvent;
+
+/**
+ * {@link OpenFilesHandler} merging the requests to open files which arrive within a short window, so that a file asked
+ * for several times is only opened once.
+ *
+ * Install it with {@link Application#setOpenFileHandler(OpenFilesHandler)} in place of the handler it wraps. The first
+ * request opens a window; the requests arriving until it closes are added to it, and the handler is then passed a
+ * single request with each file once, in the order they were first asked for. Files are told apart by their file
+ * system key where the platform has one, and otherwise by their canonical path. The combined request is delivered on
+ * the AWT Event Dispatch thread.
+ */
+public final class CoalescingOpenFilesHandler implements OpenFilesHandler {
+	private final OpenFilesHandler _target;
+	private final Timer _timer;
+	private Map<Object, File> _files = new LinkedHashMap<>();
+	private Object _source = null;
+	private String _searchTerm = null;
+	private int _requests = 0;
+	
+	/**
+	 * Creates a handler merging the requests arriving within 250 milliseconds.
+	 * @param target the handler to pass the combined requests to
+	 */
+	public CoalescingOpenFilesHandler(final OpenFilesHandler target) {
+		this(target, 250L, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param target the handler to pass the combined requests to
+	 * @param window how long after the first request the others are added to it, with millisecond resolution
+	 * @param unit the unit of the window
+	 */
+	public CoalescingOpenFilesHandler(final OpenFilesHandler target, final long window, final TimeUnit unit) {
+		if (target == null) throw new NullPointerException("target");
+		this._target = target;
+		this._timer = new Timer((int) Math.max(1, unit.toMillis(window)), new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				flush();
+			}
+		});
+		this._timer.setRepeats(false);
+	}
+	
+	/**
+	 * @return the handler the combined requests are passed to
+	 */
+	public OpenFilesHandler getTarget() {
+		return this._target;
+	}
+	
+	@Override
+	public void openFiles(final OpenFilesEvent e) {
+		List<File> files = e.getFiles();
+		String searchTerm = e.getSearchTerm();
+		Object source = e.getSource();
+		List<Object> keys = new ArrayList<>(files == null ? 0 : files.size());
+		if (files != null) {
+			for (File file : files) {
+				keys.add(keyOf(file));
+			}
+		}
+		synchronized (this) {
+			if (this._requests++ == 0) {
+				this._source = source;
+				this._timer.restart();
+			}
+			if (this._searchTerm == null) this._searchTerm = searchTerm;
+			for (int i = 0; i < keys.size(); i++) {
+				if (!this._files.containsKey(keys.get(i))) this._files.put(keys.get(i), files.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Passes the pending files to the handler right away, on the calling thread.
+	 * @return <code>true</code> if any request was pending
+	 */
+	public boolean flush() {
+		Map<Object, File> files;
+		Object source;
+		String searchTerm;
+		int requests;
+		synchronized (this) {
+			this._timer.stop();
+			if (this._requests == 0) return false;
+			files = this._files;
+			source = this._source;
+			searchTerm = this._searchTerm;
+			requests = this._requests;
+			this._files = new LinkedHashMap<>();
+			this._source = null;
+			this._searchTerm = null;
+			this._requests = 0;
+		}
+		this._target.openFiles(new CombinedOpenFilesEvent(source, new ArrayList<>(files.values()), searchTerm, requests));
+		return true;
+	}
+	
+	// The file system key identifies a file whatever path leads to it; not all file systems have one.
+	private static Object keyOf(File file) {
+		try {
+			Object key = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+			if (key != null) return key;
+		} catch (IOException | SecurityException | UnsupportedOperationException e) { }
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException | SecurityException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+	
+	private static final class CombinedOpenFilesEvent implements OpenFilesEvent {
+		private final Object _source;
+		private final List<File> _files;
+		private final String _searchTerm;
+		private final int _requests;
+		
+		CombinedOpenFilesEvent(Object source, List<File> files, String searchTerm, int requests) {
+			this._source = source;
+			this._files = Collections.unmodifiableList(files);
+			this._searchTerm = searchTerm;
+			this._requests = requests;
+		}
+		
+		@Override
+		public Object getSource() {
+			return this._source;
+		}
+		
+		@Override
+		public List<File> getFiles() {
+			return this._files;
+		}
+		
+		@Override
+		public String getSearchTerm() {
+			return this._searchTerm;
+		}
+		
+		@Override
+		public String toString() {
+			return "OpenFilesEvent[files=" + this._files.size() + ", requests=" + this._requests + "]";
+		}
+	}
+}
\ No newline at end of file
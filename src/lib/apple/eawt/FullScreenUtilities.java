@@ -29,8 +29,6 @@ import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.AccessController;
@@ -40,6 +38,7 @@ import java.util.concurrent.ConcurrentMap;
 
 import lib.apple.eawt.AppEvent.FullScreenEvent;
 import lib.apple.eawt.Application.AppInvocationHandler;
+import lib.apple.monitor.StartupTrace;
 
 /**
  * Utility class perform animated full screen actions to top-level {@link Window}s.
@@ -66,27 +65,32 @@ public final class FullScreenUtilities {
 	private static ClassLoader loader = null;
 	
 	static {
+		long init = StartupTrace.initializing();
 		try {
+			boolean standIn = Boolean.getBoolean("lib.apple.replay.standIn");
 			Path java = Paths.get("/System/Library/Java");
-			if (Files.exists(java, LinkOption.NOFOLLOW_LINKS)) {
+			if (!standIn && StartupTrace.exists(FullScreenUtilities.class, java)) {
 				ClassLoader sys_loader = ClassLoader.getSystemClassLoader();
 				if (URLClassLoader.class.isAssignableFrom(sys_loader.getClass())) {
 					Method addUrl = URLClassLoader.class.getDeclaredMethod("addURL", URL.class);
 					doPrivileged(addUrl);
-					addUrl.invoke(sys_loader, java.toUri().toURL());
+					StartupTrace.addURL(FullScreenUtilities.class, addUrl, sys_loader, java.toUri().toURL());
 				}
 			}
 			
-			Class<?> utilClass = Class.forName("com.apple.eawt.FullScreenUtilities");
+			String eawt = (standIn ? "lib.apple.eawt." : "com.apple.eawt.");
+			Class<?> utilClass = StartupTrace.forName(FullScreenUtilities.class, standIn ? "lib.apple.replay.StandInFullScreenUtilities" : "com.apple.eawt.FullScreenUtilities");
 			loader = utilClass.getClassLoader();
-			_fullScreenListenerClass = Class.forName("com.apple.eawt.FullScreenListener");
-			_setWindowCanFullScreen = utilClass.getMethod("setWindowCanFullScreen", Window.class, Boolean.TYPE);
-			_addFullScreenListenerTo = utilClass.getMethod("addFullScreenListenerTo", Window.class, _fullScreenListenerClass);
-			_removeFullScreenListenerFrom = utilClass.getMethod("removeFullScreenListenerFrom", Window.class, _fullScreenListenerClass);
+			_fullScreenListenerClass = StartupTrace.forName(FullScreenUtilities.class, eawt + "FullScreenListener");
+			_setWindowCanFullScreen = StartupTrace.getMethod(FullScreenUtilities.class, utilClass, "setWindowCanFullScreen", Window.class, Boolean.TYPE);
+			_addFullScreenListenerTo = StartupTrace.getMethod(FullScreenUtilities.class, utilClass, "addFullScreenListenerTo", Window.class, _fullScreenListenerClass);
+			_removeFullScreenListenerFrom = StartupTrace.getMethod(FullScreenUtilities.class, utilClass, "removeFullScreenListenerFrom", Window.class, _fullScreenListenerClass);
 		} catch (ClassNotFoundException e) {
 		} catch (IllegalAccessException | NoSuchMethodException
 		| InvocationTargetException | MalformedURLException e) {
 			throw new RuntimeException(e);
+		} finally {
+			StartupTrace.initialized(FullScreenUtilities.class, init);
 		}
 	}
 	
@@ -0,0 +1,112 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.swing.SwingUtilities;
+
+import lib.apple.eawt.AppEvent.QuitEvent;
+
+// Answers quit requests with the outcome of the Future returned by an AsyncQuitHandler.
+// A daemon thread waits for the future, so neither the native thread nor the EDT is blocked, and the
+// responses are then used on the EDT. Requests arriving in the meantime share the pending answer.
+final class FutureQuitHandler implements QuitHandler {
+	private final AsyncQuitHandler _handler;
+	private final long _timeout;
+	private List<QuitResponse> _waiting = null;
+	
+	FutureQuitHandler(AsyncQuitHandler handler, long timeout) {
+		this._handler = handler;
+		this._timeout = timeout;
+	}
+	
+	@Override
+	public void handleQuitRequestWith(final QuitEvent e, final QuitResponse response) {
+		synchronized (this) {
+			if (this._waiting != null) {
+				this._waiting.add(response);
+				return;
+			}
+			this._waiting = new ArrayList<>();
+			this._waiting.add(response);
+		}
+		final Future<Boolean> future;
+		try {
+			future = this._handler.handleQuitRequest(e);
+		} catch (RuntimeException | Error ex) {
+			answer(false);
+			throw ex;
+		}
+		if (future == null || future.isDone()) {
+			answer(outcome(future));
+			return;
+		}
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				answer(outcome(future));
+			}
+		}, "lib.apple.eawt.AsyncQuitHandler");
+		t.setDaemon(true);
+		t.start();
+	}
+	
+	private boolean outcome(Future<Boolean> future) {
+		if (future == null) return true;
+		try {
+			return Boolean.TRUE.equals(future.get(this._timeout, TimeUnit.NANOSECONDS));
+		} catch (TimeoutException e) {
+			future.cancel(true);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | RuntimeException e) { // Including CancellationException
+		}
+		return false;
+	}
+	
+	private void answer(final boolean quit) {
+		final List<QuitResponse> responses;
+		synchronized (this) {
+			responses = this._waiting;
+			this._waiting = null;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				for (QuitResponse r : responses) {
+					if (quit) {
+						r.performQuit();
+					} else {
+						r.cancelQuit();
+					}
+				}
+			}
+		});
+	}
+}
\ No newline at end of file
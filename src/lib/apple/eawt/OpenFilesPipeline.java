@@ -0,0 +1,305 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import lib.apple.eawt.AppEvent.OpenFilesEvent;
+
+/**
+ * {@link OpenFilesHandler} checking and sorting the files the application is asked to open in parallel, before passing
+ * them on to the {@link Route} registered for their type.
+ *
+ * Install it with {@link Application#setOpenFileHandler(OpenFilesHandler)}. For each request, the files are split among
+ * the threads of an executor, which read their attributes, check that they can be read and detect their type from the
+ * signatures registered with {@link #addSignature(String, int, byte...)}. Once every file has been looked at, the files
+ * are grouped by type and each route is passed its files in a single batch, in the order they were requested. The
+ * native thread delivering the request is not held up while this happens.
+ */
+public final class OpenFilesPipeline implements OpenFilesHandler {
+	/**
+	 * Type of the files matching no registered signature.
+	 */
+	public static final String UNKNOWN = "unknown";
+	
+	/**
+	 * Type of the directories.
+	 */
+	public static final String DIRECTORY = "directory";
+	
+	/**
+	 * Type of the files which do not exist or cannot be read.
+	 */
+	public static final String UNREADABLE = "unreadable";
+	
+	/**
+	 * Receives the files of one type.
+	 */
+	public static interface Route {
+		/**
+		 * Called once for each request which contains files of the type the route is registered for.
+		 * @param type the detected type of the files
+		 * @param files the files, in the order they were requested
+		 * @param searchTerm the search term used to find the files, or <code>null</code>
+		 */
+		public void openFiles(final String type, final List<File> files, final String searchTerm);
+	}
+	
+	private static final int FILES_PER_TASK = 32;
+	
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newFixedThreadPool(
+		Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "lib.apple.eawt.OpenFilesPipeline");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	
+	private static final ThreadLocal<ByteBuffer> HEADER = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(64);
+		}
+	};
+	
+	private final Executor _executor;
+	private final List<Signature> _signatures = new CopyOnWriteArrayList<>();
+	private final ConcurrentMap<String, Route> _routes = new ConcurrentHashMap<>();
+	private volatile Route _defaultRoute = null;
+	private volatile int _headerSize = 0;
+	private volatile boolean _dispatchOnEventDispatchThread = false;
+	
+	/**
+	 * Creates a pipeline running on a shared pool with a thread per processor.
+	 */
+	public OpenFilesPipeline() {
+		this(DEFAULT_EXECUTOR);
+	}
+	
+	/**
+	 * @param executor runs the checks and the routes
+	 */
+	public OpenFilesPipeline(final Executor executor) {
+		if (executor == null) throw new NullPointerException("executor");
+		this._executor = executor;
+	}
+	
+	/**
+	 * Registers the bytes identifying a type of file. Signatures are tried in the order they were added.
+	 * @param type the name of the type
+	 * @param offset the position of the bytes from the start of the file
+	 * @param magic the bytes
+	 */
+	public void addSignature(final String type, final int offset, final byte... magic) {
+		if (type == null) throw new NullPointerException("type");
+		if (offset < 0 || magic.length == 0) throw new IllegalArgumentException("offset: " + offset + ", length: " + magic.length);
+		synchronized (this._signatures) {
+			this._signatures.add(new Signature(type, offset, magic.clone()));
+			this._headerSize = Math.max(this._headerSize, offset + magic.length);
+		}
+	}
+	
+	/**
+	 * @param type the type of files passed to the route, which may be {@link #UNKNOWN}, {@link #DIRECTORY} or {@link #UNREADABLE}
+	 * @param route the route, or <code>null</code> to remove it
+	 */
+	public void setRoute(final String type, final Route route) {
+		if (route == null) {
+			this._routes.remove(type);
+		} else {
+			this._routes.put(type, route);
+		}
+	}
+	
+	/**
+	 * @param route the route passed the files of the types without their own route, or <code>null</code> to drop them
+	 */
+	public void setDefaultRoute(final Route route) {
+		this._defaultRoute = route;
+	}
+	
+	/**
+	 * @param dispatch whether the routes are called on the AWT Event Dispatch thread instead of on the executor; <code>false</code> by default
+	 */
+	public void setDispatchOnEventDispatchThread(final boolean dispatch) {
+		this._dispatchOnEventDispatchThread = dispatch;
+	}
+	
+	/**
+	 * Detects the type of a single file, on the calling thread.
+	 * @param path the file
+	 * @return the type of the first matching signature, or one of {@link #UNKNOWN}, {@link #DIRECTORY} or {@link #UNREADABLE}
+	 */
+	public String detectType(final Path path) {
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException | SecurityException e) {
+			return UNREADABLE;
+		}
+		if (attrs.isDirectory()) return DIRECTORY;
+		if (!Files.isReadable(path)) return UNREADABLE;
+		int size = this._headerSize;
+		if (size == 0) return UNKNOWN;
+		
+		ByteBuffer header = HEADER.get();
+		if (header.capacity() < size) {
+			header = ByteBuffer.allocate(size);
+			HEADER.set(header);
+		}
+		header.clear();
+		header.limit(size);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+		} catch (IOException | SecurityException e) {
+			return UNREADABLE;
+		}
+		header.flip();
+		for (Signature signature : this._signatures) {
+			if (signature.matches(header)) return signature._type;
+		}
+		return UNKNOWN;
+	}
+	
+	@Override
+	public void openFiles(final OpenFilesEvent e) {
+		List<File> files = e.getFiles();
+		if (files == null || files.isEmpty()) return;
+		new Intake(files.toArray(new File[files.size()]), e.getSearchTerm()).start();
+	}
+	
+	// Routes the files of one request once each of its tasks has finished.
+	private final class Intake implements Runnable {
+		private final File[] _files;
+		private final String[] _types;
+		private final String _searchTerm;
+		private final AtomicInteger _remaining;
+		
+		Intake(File[] files, String searchTerm) {
+			this._files = files;
+			this._types = new String[files.length];
+			this._searchTerm = searchTerm;
+			this._remaining = new AtomicInteger((files.length + FILES_PER_TASK - 1) / FILES_PER_TASK);
+		}
+		
+		void start() {
+			for (int from = 0; from < this._files.length; from += FILES_PER_TASK) {
+				final int start = from;
+				final int end = Math.min(this._files.length, from + FILES_PER_TASK);
+				OpenFilesPipeline.this._executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							for (int i = start; i < end; i++) {
+								try {
+									Intake.this._types[i] = detectType(Intake.this._files[i].toPath());
+								} catch (InvalidPathException e) {
+									Intake.this._types[i] = UNREADABLE;
+								}
+							}
+						} finally {
+							if (Intake.this._remaining.decrementAndGet() == 0) finished();
+						}
+					}
+				});
+			}
+		}
+		
+		private void finished() {
+			if (OpenFilesPipeline.this._dispatchOnEventDispatchThread) {
+				SwingUtilities.invokeLater(this);
+			} else {
+				run();
+			}
+		}
+		
+		@Override
+		public void run() {
+			Map<String, List<File>> groups = new LinkedHashMap<>();
+			for (int i = 0; i < this._files.length; i++) {
+				String type = (this._types[i] != null ? this._types[i] : UNREADABLE);
+				List<File> group = groups.get(type);
+				if (group == null) {
+					group = new ArrayList<>();
+					groups.put(type, group);
+				}
+				group.add(this._files[i]);
+			}
+			for (Map.Entry<String, List<File>> entry : groups.entrySet()) {
+				Route route = OpenFilesPipeline.this._routes.get(entry.getKey());
+				if (route == null) route = OpenFilesPipeline.this._defaultRoute;
+				if (route == null) continue;
+				// A failing route must not keep the files of the other types from being opened
+				try {
+					route.openFiles(entry.getKey(), entry.getValue(), this._searchTerm);
+				} catch (RuntimeException e) {
+					Thread t = Thread.currentThread();
+					t.getUncaughtExceptionHandler().uncaughtException(t, e);
+				}
+			}
+		}
+	}
+	
+	private static final class Signature {
+		final String _type;
+		final int _offset;
+		final byte[] _magic;
+		
+		Signature(String type, int offset, byte[] magic) {
+			this._type = type;
+			this._offset = offset;
+			this._magic = magic;
+		}
+		
+		boolean matches(ByteBuffer header) {
+			if (header.limit() < this._offset + this._magic.length) return false;
+			for (int i = 0; i < this._magic.length; i++) {
+				if (header.get(this._offset + i) != this._magic[i]) return false;
+			}
+			return true;
+		}
+	}
+}
\ No newline at end of file
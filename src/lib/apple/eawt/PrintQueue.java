@@ -0,0 +1,414 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.PageFormat;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.awt.print.PrinterJob;
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import lib.apple.eawt.AppEvent.PrintFilesEvent;
+
+/**
+ * {@link PrintFilesHandler} printing in the background, a bounded number of jobs at a time.
+ *
+ * Install it with {@link Application#setPrintFileHandler(PrintFilesHandler)}. The files of each request are counted
+ * on a background thread and turned into jobs: a file with more than the small-document limit of pages is a job of its
+ * own, while consecutive smaller files are merged into one job of up to that many pages, so that hundreds of one-page
+ * documents make a few jobs. At most a given number of jobs are rasterized and spooled at once. The pages of a job are
+ * rasterized in parallel by the {@link Renderer} a few pages ahead of the {@link Spooler} reading them, and dropped once
+ * read, so a job holds a bounded number of pages however long it is. While jobs remain, the dock icon badge shows the
+ * percentage of pages printed.
+ */
+public final class PrintQueue implements PrintFilesHandler {
+	/**
+	 * Draws the pages of documents.
+	 */
+	public static interface Renderer {
+		/**
+		 * @param file the document
+		 * @return the number of pages of the document
+		 * @throws Exception if the document cannot be read
+		 */
+		public int getPageCount(final File file) throws Exception;
+		
+		/**
+		 * Called from several threads at once.
+		 * @param file the document
+		 * @param page the index of the page, from 0
+		 * @param format the format of the printed page
+		 * @return the page, to be scaled into the imageable area of the format
+		 * @throws Exception if the page cannot be drawn
+		 */
+		public BufferedImage renderPage(final File file, final int page, final PageFormat format) throws Exception;
+	}
+	
+	/**
+	 * Sends rasterized pages to the printer.
+	 */
+	public static interface Spooler {
+		/**
+		 * The pages are rasterized as they are read, so they should be read in order and not kept after the call.
+		 * @param name the name of the job
+		 * @param pages the pages, in order
+		 * @param format the format of the printed pages
+		 * @throws Exception if the job cannot be printed
+		 */
+		public void spool(final String name, final List<BufferedImage> pages, final PageFormat format) throws Exception;
+	}
+	
+	/**
+	 * Listener interface notified when a job has finished.
+	 */
+	public static interface Listener {
+		/**
+		 * Invoked on the thread which spooled the job.
+		 * @param files the documents of the job
+		 * @param pages the number of pages of the job, 0 for an empty document which was not spooled
+		 * @param failure the exception which stopped the job, or <code>null</code> if it was printed
+		 */
+		public void jobFinished(final List<File> files, final int pages, final Throwable failure);
+	}
+	
+	/**
+	 * Prints on the default printer with a {@link PrinterJob}, each page scaled to fit its imageable area.
+	 */
+	public static final Spooler PRINTER_JOB = new Spooler() {
+		@Override
+		public void spool(final String name, final List<BufferedImage> pages, final PageFormat format) throws PrinterException {
+			PrinterJob job = PrinterJob.getPrinterJob();
+			job.setJobName(name);
+			job.setPrintable(new Printable() {
+				@Override
+				public int print(Graphics graphics, PageFormat pageFormat, int pageIndex) {
+					if (pageIndex >= pages.size()) return NO_SUCH_PAGE;
+					BufferedImage page = pages.get(pageIndex);
+					double scale = Math.min(pageFormat.getImageableWidth() / page.getWidth(), pageFormat.getImageableHeight() / page.getHeight());
+					Graphics2D g = (Graphics2D) graphics;
+					g.translate(pageFormat.getImageableX(), pageFormat.getImageableY());
+					g.scale(scale, scale);
+					g.drawImage(page, 0, 0, null);
+					return PAGE_EXISTS;
+				}
+			}, format);
+			job.print();
+		}
+	};
+	
+	private static ThreadFactory threads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+	
+	private static final int WINDOW = Runtime.getRuntime().availableProcessors();
+	private static final ExecutorService RASTERIZER = Executors.newFixedThreadPool(WINDOW, threads("lib.apple.eawt.PrintQueue.Rasterizer"));
+	
+	private final Renderer _renderer;
+	private final Spooler _spooler;
+	private final int _smallDocumentPages;
+	private final ExecutorService _planner = Executors.newSingleThreadExecutor(threads("lib.apple.eawt.PrintQueue.Planner"));
+	private final ExecutorService _spoolers;
+	private final List<Listener> _listeners = new CopyOnWriteArrayList<>();
+	private int _totalPages = 0;
+	private int _printedPages = 0;
+	private int _jobs = 0;
+	private volatile PageFormat _format = new PageFormat();
+	private volatile boolean _showProgress = true;
+	
+	/**
+	 * Creates a queue spooling two jobs at a time and merging documents of up to 8 pages.
+	 * @param renderer draws the pages
+	 */
+	public PrintQueue(final Renderer renderer) {
+		this(renderer, PRINTER_JOB, 2, 8);
+	}
+	
+	/**
+	 * @param renderer draws the pages
+	 * @param spooler prints the pages
+	 * @param concurrentJobs the most jobs rasterized or spooled at once
+	 * @param smallDocumentPages the most pages of a document merged with others, and of a merged job
+	 */
+	public PrintQueue(final Renderer renderer, final Spooler spooler, final int concurrentJobs, final int smallDocumentPages) {
+		if (renderer == null) throw new NullPointerException("renderer");
+		if (spooler == null) throw new NullPointerException("spooler");
+		if (concurrentJobs <= 0) throw new IllegalArgumentException("concurrentJobs: " + concurrentJobs);
+		this._renderer = renderer;
+		this._spooler = spooler;
+		this._smallDocumentPages = smallDocumentPages;
+		this._spoolers = Executors.newFixedThreadPool(concurrentJobs, threads("lib.apple.eawt.PrintQueue.Spooler"));
+	}
+	
+	/**
+	 * @param format the format of the printed pages
+	 */
+	public void setPageFormat(final PageFormat format) {
+		this._format = (PageFormat) format.clone();
+	}
+	
+	/**
+	 * @param show whether the dock icon badge shows the progress; <code>true</code> by default
+	 */
+	public void setShowProgress(final boolean show) {
+		this._showProgress = show;
+	}
+	
+	/**
+	 * @param listener to be notified when a job has finished
+	 */
+	public void addListener(final Listener listener) {
+		this._listeners.add(listener);
+	}
+	
+	/**
+	 * @param listener to be removed
+	 */
+	public void removeListener(final Listener listener) {
+		this._listeners.remove(listener);
+	}
+	
+	/**
+	 * @return the number of jobs waiting or printing
+	 */
+	public synchronized int getPendingJobCount() {
+		return this._jobs;
+	}
+	
+	@Override
+	public void printFiles(final PrintFilesEvent e) {
+		List<File> files = e.getFiles();
+		if (files == null || files.isEmpty()) return;
+		final List<File> request = new ArrayList<>(files);
+		this._planner.execute(new Runnable() {
+			@Override
+			public void run() {
+				plan(request);
+			}
+		});
+	}
+	
+	// Counts the pages of the files and queues them as jobs, merging consecutive small documents.
+	private void plan(List<File> files) {
+		List<File> merged = new ArrayList<>();
+		List<Integer> mergedPages = new ArrayList<>();
+		int total = 0;
+		for (File file : files) {
+			int pages;
+			try {
+				pages = this._renderer.getPageCount(file);
+			} catch (Exception e) {
+				finished(Collections.singletonList(file), 0, e);
+				continue;
+			}
+			if (pages <= 0) {
+				finished(Collections.singletonList(file), 0, null);
+				continue;
+			}
+			// The small documents gathered so far go first, so the documents print in the order given
+			if (!merged.isEmpty() && total + pages > this._smallDocumentPages) {
+				queue(merged, mergedPages);
+				merged = new ArrayList<>();
+				mergedPages = new ArrayList<>();
+				total = 0;
+			}
+			if (pages > this._smallDocumentPages) {
+				queue(Collections.singletonList(file), Collections.singletonList(Integer.valueOf(pages)));
+				continue;
+			}
+			merged.add(file);
+			mergedPages.add(Integer.valueOf(pages));
+			total += pages;
+		}
+		if (!merged.isEmpty()) queue(merged, mergedPages);
+	}
+	
+	private void queue(final List<File> files, final List<Integer> pages) {
+		int count = 0;
+		for (Integer n : pages) {
+			count += n.intValue();
+		}
+		final int total = count;
+		queued(total);
+		this._spoolers.execute(new Runnable() {
+			@Override
+			public void run() {
+				Throwable failure = null;
+				try {
+					print(files, pages);
+				} catch (Exception e) {
+					failure = e;
+				} finally {
+					printed(total);
+				}
+				finished(files, total, failure);
+			}
+		});
+	}
+	
+	// Spools the pages of a job, rasterized while the spooler reads them.
+	private void print(List<File> files, List<Integer> pages) throws Exception {
+		Pages images = new Pages(files, pages, this._format);
+		String name = (files.size() == 1 ? files.get(0).getName() : files.get(0).getName() + " (+" + (files.size() - 1) + ")");
+		try {
+			this._spooler.spool(name, images, images._format);
+		} catch (Exception e) {
+			if (images._failure == null) throw e;
+		} finally {
+			images.cancel();
+		}
+		if (images._failure != null) throw images._failure;
+	}
+	
+	// The pages of a job, rasterized in parallel a window ahead of the page read and dropped once it is passed.
+	// A page read again after it was dropped is rasterized again.
+	private final class Pages extends AbstractList<BufferedImage> {
+		final PageFormat _format;
+		private final File[] _files;
+		private final int[] _pages;
+		private final Map<Integer, Future<BufferedImage>> _window = new HashMap<>();
+		Exception _failure = null;
+		
+		Pages(List<File> files, List<Integer> pages, PageFormat format) {
+			int count = 0;
+			for (Integer n : pages) {
+				count += n.intValue();
+			}
+			this._format = format;
+			this._files = new File[count];
+			this._pages = new int[count];
+			int index = 0;
+			for (int i = 0; i < files.size(); i++) {
+				for (int p = 0; p < pages.get(i).intValue(); p++, index++) {
+					this._files[index] = files.get(i);
+					this._pages[index] = p;
+				}
+			}
+		}
+		
+		@Override
+		public int size() {
+			return this._files.length;
+		}
+		
+		@Override
+		public synchronized BufferedImage get(int index) {
+			if (index < 0 || index >= this._files.length) throw new IndexOutOfBoundsException("page: " + index);
+			int end = Math.min(this._files.length, index + WINDOW);
+			for (Iterator<Map.Entry<Integer, Future<BufferedImage>>> it = this._window.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<Integer, Future<BufferedImage>> entry = it.next();
+				int page = entry.getKey().intValue();
+				if (page < index || page >= end) {
+					entry.getValue().cancel(true);
+					it.remove();
+				}
+			}
+			for (int i = index; i < end; i++) {
+				if (!this._window.containsKey(Integer.valueOf(i))) this._window.put(Integer.valueOf(i), render(i));
+			}
+			try {
+				return this._window.get(Integer.valueOf(index)).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw fail(index, e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Error) throw (Error) cause;
+				throw fail(index, (Exception) cause);
+			}
+		}
+		
+		synchronized void cancel() {
+			for (Future<BufferedImage> f : this._window.values()) {
+				f.cancel(true);
+			}
+			this._window.clear();
+		}
+		
+		private Future<BufferedImage> render(final int index) {
+			return RASTERIZER.submit(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() throws Exception {
+					return PrintQueue.this._renderer.renderPage(Pages.this._files[index], Pages.this._pages[index], Pages.this._format);
+				}
+			});
+		}
+		
+		// Remembered so that the job reports the renderer's exception rather than whatever the spooler made of it.
+		private IllegalStateException fail(int index, Exception e) {
+			if (this._failure == null) this._failure = e;
+			return new IllegalStateException("page " + index + " cannot be rendered", e);
+		}
+	}
+	
+	private void finished(List<File> files, int pages, Throwable failure) {
+		for (Listener l : this._listeners) {
+			l.jobFinished(files, pages, failure);
+		}
+	}
+	
+	private synchronized void queued(int pages) {
+		this._jobs++;
+		this._totalPages += pages;
+		progress();
+	}
+	
+	private synchronized void printed(int pages) {
+		this._jobs--;
+		this._printedPages += pages;
+		progress();
+	}
+	
+	// Shows the share of pages printed, and clears the badge once the queue is empty.
+	private void progress() {
+		if (this._jobs == 0) {
+			this._totalPages = 0;
+			this._printedPages = 0;
+			if (this._showProgress) Application.setDockIconBadge(null);
+		} else if (this._showProgress && this._totalPages > 0) {
+			Application.setDockIconBadge((int) (100L * this._printedPages / this._totalPages) + "%");
+		}
+	}
+}
\ No newline at end of file
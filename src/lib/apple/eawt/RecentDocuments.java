@@ -0,0 +1,375 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.awt.MenuItem;
+import java.awt.PopupMenu;
+import java.awt.event.ActionListener;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import lib.apple.eawt.AppEvent.OpenFilesEvent;
+import lib.apple.eawt.AppEvent.OpenURIEvent;
+
+/**
+ * Persistent list of the documents recently opened by the application, with how often and when each was last opened.
+ *
+ * The list is kept in a file mapped into memory, made of one fixed-size slot per document, so opening it reads nothing
+ * up front and queries compare the stored bytes in place; only the entries returned are decoded. When all slots are
+ * taken, the least recently opened document makes room for the next. The list is fed by wrapping the application's
+ * handlers with {@link #openFilesHandler(OpenFilesHandler)} and {@link #openURIHandler(OpenURIHandler)}, and can fill a
+ * menu with {@link #createMenu(int, ActionListener)}, for example for {@link Application#setDockMenu(PopupMenu)}.
+ *
+ * Paths and URIs longer than {@value #MAX_LENGTH} bytes in UTF-8 are not recorded. The methods may be called from any thread.
+ */
+public final class RecentDocuments implements Closeable {
+	/**
+	 * The longest path or URI recorded, in bytes of UTF-8.
+	 */
+	public static final int MAX_LENGTH = 1004;
+	
+	private static final int MAGIC = 0x52444F43;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int SLOT_SIZE = 1024;
+	
+	// Slot layout
+	private static final int LAST_ACCESS = 0;
+	private static final int COUNT = 8;
+	private static final int HASH = 12;
+	private static final int LENGTH = 16;
+	private static final int KIND = 18;
+	private static final int BYTES = 20;
+	
+	private static final byte KIND_FILE = 1;
+	private static final byte KIND_URI = 2;
+	
+	private final FileChannel _channel;
+	private final MappedByteBuffer _buffer;
+	private final int _capacity;
+	
+	/**
+	 * Opens the list stored in a file, creating it if needed. A file written for another capacity is started afresh.
+	 * @param path the file storing the list
+	 * @param capacity the most documents kept
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	public RecentDocuments(final Path path, final int capacity) throws IOException {
+		if (capacity <= 0) throw new IllegalArgumentException("capacity: " + capacity);
+		this._capacity = capacity;
+		this._channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = HEADER_SIZE + (long) SLOT_SIZE * capacity;
+			boolean valid = (this._channel.size() == size);
+			this._buffer = this._channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+			if (!valid || this._buffer.getInt(0) != MAGIC || this._buffer.getInt(4) != VERSION
+				|| this._buffer.getInt(8) != capacity || this._buffer.getInt(12) != SLOT_SIZE) {
+				for (int i = 0; i < size; i += 8) {
+					this._buffer.putLong(i, 0L);
+				}
+				this._buffer.putInt(0, MAGIC);
+				this._buffer.putInt(4, VERSION);
+				this._buffer.putInt(8, capacity);
+				this._buffer.putInt(12, SLOT_SIZE);
+			}
+		} catch (IOException | RuntimeException e) {
+			this._channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return the most documents kept
+	 */
+	public int getCapacity() {
+		return this._capacity;
+	}
+	
+	/**
+	 * Records that a file was opened.
+	 * @param file the file
+	 */
+	public void record(final File file) {
+		record(file.getAbsolutePath(), KIND_FILE);
+	}
+	
+	/**
+	 * Records that a URI was opened.
+	 * @param uri the URI
+	 */
+	public void record(final URI uri) {
+		record(uri.toString(), KIND_URI);
+	}
+	
+	/**
+	 * Removes a file from the list.
+	 * @param file the file
+	 * @return <code>true</code> if the file was in the list
+	 */
+	public synchronized boolean remove(final File file) {
+		byte[] bytes = file.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+		int slot = find(bytes, file.getAbsolutePath().hashCode(), KIND_FILE);
+		if (slot < 0) return false;
+		this._buffer.putShort(offset(slot) + LENGTH, (short) 0);
+		return true;
+	}
+	
+	/**
+	 * Empties the list.
+	 */
+	public synchronized void clear() {
+		for (int slot = 0; slot < this._capacity; slot++) {
+			this._buffer.putShort(offset(slot) + LENGTH, (short) 0);
+		}
+	}
+	
+	/**
+	 * @param max the most entries returned
+	 * @return the documents in the list, most recently opened first
+	 */
+	public List<Entry> getRecent(final int max) {
+		return query(null, max);
+	}
+	
+	/**
+	 * @param prefix the start of the paths or URIs to return, for example a directory or a scheme
+	 * @param max the most entries returned
+	 * @return the documents whose path or URI starts with the prefix, most recently opened first
+	 */
+	public List<Entry> getByPrefix(final String prefix, final int max) {
+		return query(prefix.getBytes(StandardCharsets.UTF_8), max);
+	}
+	
+	/**
+	 * Creates a menu of the most recently opened documents. The action command of each item is the path or URI of its document.
+	 * @param max the most items in the menu
+	 * @param listener notified when an item is chosen
+	 * @return the menu
+	 */
+	public PopupMenu createMenu(final int max, final ActionListener listener) {
+		PopupMenu menu = new PopupMenu();
+		for (Entry entry : getRecent(max)) {
+			String location = entry.getLocation();
+			MenuItem item = new MenuItem(entry.isURI() ? location : new File(location).getName());
+			item.setActionCommand(location);
+			if (listener != null) item.addActionListener(listener);
+			menu.add(item);
+		}
+		return menu;
+	}
+	
+	/**
+	 * @param target the handler to pass the requests on to, or <code>null</code>
+	 * @return a handler recording each file it is asked to open before passing the request on
+	 */
+	public OpenFilesHandler openFilesHandler(final OpenFilesHandler target) {
+		return new OpenFilesHandler() {
+			@Override
+			public void openFiles(final OpenFilesEvent e) {
+				List<File> files = e.getFiles();
+				if (files != null) {
+					for (File file : files) {
+						record(file);
+					}
+				}
+				if (target != null) target.openFiles(e);
+			}
+		};
+	}
+	
+	/**
+	 * @param target the handler to pass the requests on to, or <code>null</code>
+	 * @return a handler recording each URI it is asked to open before passing the request on
+	 */
+	public OpenURIHandler openURIHandler(final OpenURIHandler target) {
+		return new OpenURIHandler() {
+			@Override
+			public void openURI(final OpenURIEvent e) {
+				URI uri = e.getURI();
+				if (uri != null) record(uri);
+				if (target != null) target.openURI(e);
+			}
+		};
+	}
+	
+	/**
+	 * Writes the list to the file and closes it.
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!this._channel.isOpen()) return;
+		this._buffer.force();
+		this._channel.close();
+	}
+	
+	private synchronized void record(String location, byte kind) {
+		byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length == 0 || bytes.length > MAX_LENGTH) return;
+		int hash = location.hashCode();
+		long now = System.currentTimeMillis();
+		int slot = find(bytes, hash, kind);
+		if (slot >= 0) {
+			int offset = offset(slot);
+			this._buffer.putInt(offset + COUNT, this._buffer.getInt(offset + COUNT) + 1);
+			this._buffer.putLong(offset + LAST_ACCESS, now);
+			return;
+		}
+		
+		// Take an empty slot, or else the least recently used one
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < this._capacity; i++) {
+			int offset = offset(i);
+			if (this._buffer.getShort(offset + LENGTH) == 0) {
+				slot = i;
+				break;
+			}
+			long access = this._buffer.getLong(offset + LAST_ACCESS);
+			if (access < oldest) {
+				oldest = access;
+				slot = i;
+			}
+		}
+		int offset = offset(slot);
+		ByteBuffer view = this._buffer.duplicate();
+		view.position(offset + BYTES);
+		view.put(bytes);
+		this._buffer.putLong(offset + LAST_ACCESS, now);
+		this._buffer.putInt(offset + COUNT, 1);
+		this._buffer.putInt(offset + HASH, hash);
+		this._buffer.put(offset + KIND, kind);
+		this._buffer.putShort(offset + LENGTH, (short) bytes.length);
+	}
+	
+	private int find(byte[] bytes, int hash, byte kind) {
+		for (int slot = 0; slot < this._capacity; slot++) {
+			int offset = offset(slot);
+			if (this._buffer.getShort(offset + LENGTH) == bytes.length && this._buffer.getInt(offset + HASH) == hash
+				&& this._buffer.get(offset + KIND) == kind && startsWith(offset, bytes)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+	
+	private boolean startsWith(int offset, byte[] prefix) {
+		if (this._buffer.getShort(offset + LENGTH) < prefix.length) return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (this._buffer.get(offset + BYTES + i) != prefix[i]) return false;
+		}
+		return true;
+	}
+	
+	private synchronized List<Entry> query(byte[] prefix, int max) {
+		List<Integer> slots = new ArrayList<>();
+		for (int slot = 0; slot < this._capacity; slot++) {
+			int offset = offset(slot);
+			if (this._buffer.getShort(offset + LENGTH) > 0 && (prefix == null || startsWith(offset, prefix))) {
+				slots.add(Integer.valueOf(slot));
+			}
+		}
+		Collections.sort(slots, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(RecentDocuments.this._buffer.getLong(offset(b.intValue()) + LAST_ACCESS),
+					RecentDocuments.this._buffer.getLong(offset(a.intValue()) + LAST_ACCESS));
+			}
+		});
+		List<Entry> entries = new ArrayList<>(Math.min(max, slots.size()));
+		for (int i = 0; i < slots.size() && i < max; i++) {
+			int offset = offset(slots.get(i).intValue());
+			byte[] bytes = new byte[this._buffer.getShort(offset + LENGTH)];
+			ByteBuffer view = this._buffer.duplicate();
+			view.position(offset + BYTES);
+			view.get(bytes);
+			entries.add(new Entry(new String(bytes, StandardCharsets.UTF_8), this._buffer.get(offset + KIND) == KIND_URI,
+				this._buffer.getInt(offset + COUNT), this._buffer.getLong(offset + LAST_ACCESS)));
+		}
+		return entries;
+	}
+	
+	private static int offset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+	
+	/**
+	 * A document in the list.
+	 */
+	public static final class Entry {
+		private final String _location;
+		private final boolean _uri;
+		private final int _accessCount;
+		private final long _lastAccess;
+		
+		Entry(String location, boolean uri, int accessCount, long lastAccess) {
+			this._location = location;
+			this._uri = uri;
+			this._accessCount = accessCount;
+			this._lastAccess = lastAccess;
+		}
+		
+		/**
+		 * @return the absolute path of the file, or the URI
+		 */
+		public String getLocation() {
+			return this._location;
+		}
+		
+		/**
+		 * @return <code>true</code> if the document was opened as a URI rather than as a file
+		 */
+		public boolean isURI() {
+			return this._uri;
+		}
+		
+		/**
+		 * @return the number of times the document was opened
+		 */
+		public int getAccessCount() {
+			return this._accessCount;
+		}
+		
+		/**
+		 * @return when the document was last opened, in milliseconds since the epoch
+		 */
+		public long getLastAccess() {
+			return this._lastAccess;
+		}
+		
+		@Override
+		public String toString() {
+			return this._location + " (" + this._accessCount + ")";
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,342 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lib.apple.eawt.AppEvent.QuitEvent;
+
+/**
+ * {@link QuitHandler} running the registered {@link ShutdownTask}s in parallel before letting the application quit.
+ *
+ * Install it with {@link Application#setQuitHandler(QuitHandler)}. When the application is asked to quit, each task is
+ * started on a fork-join pool of the orchestrator's own as soon as the tasks it depends on have finished, the ones with
+ * the highest priority first. The quit is cancelled as soon as a task vetoes it, and otherwise performed once every task
+ * has finished or the deadline has passed, whichever comes first; tasks still running then are abandoned. The native
+ * thread is not held up meanwhile. The {@link ShutdownReport} of the run is passed to the listener before the quit is
+ * performed or cancelled.
+ */
+public final class ShutdownOrchestrator implements QuitHandler {
+	/**
+	 * Listener interface notified when the tasks have run.
+	 */
+	public static interface Listener {
+		/**
+		 * Invoked on the thread waiting for the tasks, before the quit is performed or cancelled.
+		 * @param report the outcome of the run
+		 */
+		public void shutdownFinished(final ShutdownReport report);
+	}
+	
+	private final ForkJoinPool _pool;
+	private final Map<String, Registration> _registrations = new LinkedHashMap<>();
+	private List<QuitResponse> _waiting = null;
+	private volatile long _deadline = TimeUnit.SECONDS.toNanos(10L);
+	private volatile Listener _listener = null;
+	private volatile ShutdownReport _lastReport = null;
+	
+	/**
+	 * Creates an orchestrator running as many tasks at once as there are processors.
+	 */
+	public ShutdownOrchestrator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param parallelism the most tasks running at once
+	 */
+	public ShutdownOrchestrator(final int parallelism) {
+		// FIFO mode, so that the tasks a worker makes ready start in the order they were sorted in
+		this._pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+	
+	/**
+	 * Registers a task. The tasks it depends on must have been registered before it.
+	 * @param name the unique name of the task
+	 * @param priority tasks ready at the same time are started highest priority first
+	 * @param task the task
+	 * @param dependencies the names of the tasks which must finish before this one starts
+	 */
+	public synchronized void register(final String name, final int priority, final ShutdownTask task, final String... dependencies) {
+		if (task == null) throw new NullPointerException("task");
+		if (this._registrations.containsKey(name)) throw new IllegalArgumentException("duplicate task: " + name);
+		for (String dependency : dependencies) {
+			if (!this._registrations.containsKey(dependency)) throw new IllegalArgumentException("unknown dependency: " + dependency);
+		}
+		this._registrations.put(name, new Registration(name, priority, task, dependencies.clone()));
+	}
+	
+	/**
+	 * Removes a task which no other task depends on.
+	 * @param name the name of the task
+	 * @return <code>true</code> if the task was removed
+	 */
+	public synchronized boolean unregister(final String name) {
+		for (Registration r : this._registrations.values()) {
+			if (Arrays.asList(r._dependencies).contains(name)) return false;
+		}
+		return (this._registrations.remove(name) != null);
+	}
+	
+	/**
+	 * @param deadline the longest time the quit waits for the tasks; 10 seconds by default
+	 * @param unit the unit of the deadline
+	 */
+	public void setDeadline(final long deadline, final TimeUnit unit) {
+		this._deadline = unit.toNanos(deadline);
+	}
+	
+	/**
+	 * @param listener to be notified when the tasks have run, or <code>null</code>
+	 */
+	public void setListener(final Listener listener) {
+		this._listener = listener;
+	}
+	
+	/**
+	 * @return the report of the last run, or <code>null</code>
+	 */
+	public ShutdownReport getLastReport() {
+		return this._lastReport;
+	}
+	
+	@Override
+	public void handleQuitRequestWith(final QuitEvent e, final QuitResponse response) {
+		synchronized (this) {
+			if (this._waiting != null) { // Answered together with the request already being handled
+				this._waiting.add(response);
+				return;
+			}
+			this._waiting = new ArrayList<>();
+			this._waiting.add(response);
+		}
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				ShutdownReport report = runTasks();
+				List<QuitResponse> responses;
+				synchronized (ShutdownOrchestrator.this) {
+					responses = ShutdownOrchestrator.this._waiting;
+					ShutdownOrchestrator.this._waiting = null;
+				}
+				try {
+					Listener listener = ShutdownOrchestrator.this._listener;
+					if (listener != null) listener.shutdownFinished(report);
+				} finally {
+					for (QuitResponse r : responses) {
+						if (report.isVetoed()) {
+							r.cancelQuit();
+						} else {
+							r.performQuit();
+						}
+					}
+				}
+			}
+		}, "lib.apple.eawt.ShutdownOrchestrator");
+		t.start();
+	}
+	
+	/**
+	 * Runs the tasks without quitting, waiting for them until the deadline.
+	 * @return the outcome of the run
+	 */
+	public ShutdownReport runTasks() {
+		List<Registration> registrations;
+		synchronized (this) {
+			registrations = new ArrayList<>(this._registrations.values());
+		}
+		Run run = new Run(registrations);
+		ShutdownReport report = run.await(this._deadline);
+		this._lastReport = report;
+		return report;
+	}
+	
+	private static final class Registration {
+		final String _name;
+		final int _priority;
+		final ShutdownTask _task;
+		final String[] _dependencies;
+		
+		Registration(String name, int priority, ShutdownTask task, String[] dependencies) {
+			this._name = name;
+			this._priority = priority;
+			this._task = task;
+			this._dependencies = dependencies;
+		}
+	}
+	
+	private static final Comparator<Node> BY_PRIORITY = new Comparator<Node>() {
+		@Override
+		public int compare(Node a, Node b) {
+			return Integer.compare(b._registration._priority, a._registration._priority);
+		}
+	};
+	
+	// A single run of the tasks.
+	private final class Run {
+		final Node[] _nodes;
+		final long _origin = System.nanoTime();
+		final AtomicInteger _pending;
+		final CountDownLatch _finished = new CountDownLatch(1);
+		volatile boolean _stopped = false;
+		volatile boolean _vetoed = false;
+		
+		Run(List<Registration> registrations) {
+			this._nodes = new Node[registrations.size()];
+			this._pending = new AtomicInteger(this._nodes.length);
+			Map<String, Node> byName = new HashMap<>();
+			for (int i = 0; i < this._nodes.length; i++) {
+				this._nodes[i] = new Node(this, registrations.get(i));
+				byName.put(registrations.get(i)._name, this._nodes[i]);
+			}
+			for (Node node : this._nodes) {
+				for (String dependency : node._registration._dependencies) {
+					Node d = byName.get(dependency);
+					if (d == null) continue;
+					d._dependents.add(node);
+					node._remaining.incrementAndGet();
+				}
+			}
+		}
+		
+		ShutdownReport await(long deadline) {
+			if (this._nodes.length == 0) {
+				this._finished.countDown();
+			} else {
+				List<Node> ready = new ArrayList<>();
+				for (Node node : this._nodes) {
+					if (node._remaining.get() == 0) ready.add(node);
+				}
+				start(ready);
+			}
+			boolean timedOut = false;
+			try {
+				timedOut = !this._finished.await(deadline, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				timedOut = true;
+			}
+			this._stopped = true;
+			long end = System.nanoTime();
+			List<ShutdownReport.Task> tasks = new ArrayList<>(this._nodes.length);
+			for (Node node : this._nodes) {
+				tasks.add(node.report(end));
+				node.interrupt();
+			}
+			return new ShutdownReport(tasks, end - this._origin, this._vetoed, timedOut && !this._vetoed);
+		}
+		
+		void start(List<Node> ready) {
+			Collections.sort(ready, BY_PRIORITY);
+			for (Node node : ready) {
+				ShutdownOrchestrator.this._pool.execute(node);
+			}
+		}
+		
+		void done(Node node) {
+			List<Node> ready = new ArrayList<>();
+			for (Node dependent : node._dependents) {
+				if (dependent._remaining.decrementAndGet() == 0) ready.add(dependent);
+			}
+			if (!ready.isEmpty()) start(ready);
+			if (this._pending.decrementAndGet() == 0) this._finished.countDown();
+		}
+	}
+	
+	private static final class Node implements Runnable {
+		final Run _run;
+		final Registration _registration;
+		final List<Node> _dependents = new ArrayList<>();
+		final AtomicInteger _remaining = new AtomicInteger();
+		volatile Thread _thread = null;
+		volatile long _start = -1L;
+		volatile long _end = -1L;
+		volatile ShutdownReport.State _state = null;
+		volatile Throwable _failure = null;
+		
+		Node(Run run, Registration registration) {
+			this._run = run;
+			this._registration = registration;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				if (this._run._stopped) {
+					this._state = ShutdownReport.State.SKIPPED;
+					return;
+				}
+				synchronized (this) {
+					this._thread = Thread.currentThread();
+				}
+				this._start = System.nanoTime();
+				try {
+					if (this._registration._task.shutdown()) {
+						this._state = ShutdownReport.State.COMPLETED;
+					} else {
+						this._state = ShutdownReport.State.VETOED;
+						this._run._vetoed = true;
+						this._run._stopped = true;
+						this._run._finished.countDown();
+					}
+				} catch (Exception e) {
+					this._failure = e;
+					this._state = ShutdownReport.State.FAILED;
+				} finally {
+					this._end = System.nanoTime();
+					synchronized (this) {
+						this._thread = null;
+					}
+					Thread.interrupted(); // Do not leave an interrupt from the deadline on the pool thread
+				}
+			} finally {
+				this._run.done(this);
+			}
+		}
+		
+		// Interrupts the task if it is still running. The thread is only cleared under the same lock, so a pool
+		// thread which has moved on to another task is never interrupted.
+		synchronized void interrupt() {
+			if (this._thread != null) this._thread.interrupt();
+		}
+		
+		ShutdownReport.Task report(long end) {
+			long start = this._start;
+			ShutdownReport.State state = this._state;
+			if (state == null) state = (start < 0L ? ShutdownReport.State.SKIPPED : ShutdownReport.State.TIMED_OUT);
+			long finish = (this._end >= 0L ? this._end : end);
+			return new ShutdownReport.Task(this._registration._name, state, start < 0L ? -1L : start - this._run._origin,
+				start < 0L ? 0L : finish - start, this._failure);
+		}
+	}
+}
\ No newline at end of file
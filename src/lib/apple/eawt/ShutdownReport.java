@@ -0,0 +1,181 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a run of the tasks of a {@link ShutdownOrchestrator}, with the timing of each task.
+ */
+public final class ShutdownReport {
+	/**
+	 * How a task ended.
+	 */
+	public static enum State {
+		/**
+		 * The task finished and let the application quit.
+		 */
+		COMPLETED,
+		
+		/**
+		 * The task finished and cancelled the quit.
+		 */
+		VETOED,
+		
+		/**
+		 * The task threw an exception.
+		 */
+		FAILED,
+		
+		/**
+		 * The task was still running when the deadline passed or another task cancelled the quit, and was abandoned.
+		 */
+		TIMED_OUT,
+		
+		/**
+		 * The task never started, because the quit was cancelled or the deadline passed first.
+		 */
+		SKIPPED
+	}
+	
+	/**
+	 * The timing and outcome of a single task.
+	 */
+	public static final class Task {
+		private final String _name;
+		private final State _state;
+		private final long _startTime;
+		private final long _duration;
+		private final Throwable _failure;
+		
+		Task(String name, State state, long startTime, long duration, Throwable failure) {
+			this._name = name;
+			this._state = state;
+			this._startTime = startTime;
+			this._duration = duration;
+			this._failure = failure;
+		}
+		
+		/**
+		 * @return the name the task was registered with
+		 */
+		public String getName() {
+			return this._name;
+		}
+		
+		/**
+		 * @return how the task ended
+		 */
+		public State getState() {
+			return this._state;
+		}
+		
+		/**
+		 * @return when the task started, in nanoseconds from the start of the run, or -1 if it never started
+		 */
+		public long getStartTime() {
+			return this._startTime;
+		}
+		
+		/**
+		 * @return how long the task ran, in nanoseconds, up to the end of the run if it timed out
+		 */
+		public long getDuration() {
+			return this._duration;
+		}
+		
+		/**
+		 * @return the exception the task threw, or <code>null</code>
+		 */
+		public Throwable getFailure() {
+			return this._failure;
+		}
+		
+		@Override
+		public String toString() {
+			return this._name + " " + this._state + " " + (this._duration / 1000000L) + "ms";
+		}
+	}
+	
+	private final List<Task> _tasks;
+	private final long _elapsedTime;
+	private final boolean _vetoed;
+	private final boolean _timedOut;
+	
+	ShutdownReport(List<Task> tasks, long elapsedTime, boolean vetoed, boolean timedOut) {
+		this._tasks = Collections.unmodifiableList(tasks);
+		this._elapsedTime = elapsedTime;
+		this._vetoed = vetoed;
+		this._timedOut = timedOut;
+	}
+	
+	/**
+	 * @return the tasks, in the order they were registered
+	 */
+	public List<Task> getTasks() {
+		return this._tasks;
+	}
+	
+	/**
+	 * @return the tasks which ran, longest first
+	 */
+	public List<Task> getSlowestTasks() {
+		List<Task> tasks = new ArrayList<>(this._tasks);
+		Collections.sort(tasks, new Comparator<Task>() {
+			@Override
+			public int compare(Task a, Task b) {
+				return Long.compare(b.getDuration(), a.getDuration());
+			}
+		});
+		return tasks;
+	}
+	
+	/**
+	 * @return the time from the quit request to the decision, in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return this._elapsedTime;
+	}
+	
+	/**
+	 * @return <code>true</code> if a task cancelled the quit
+	 */
+	public boolean isVetoed() {
+		return this._vetoed;
+	}
+	
+	/**
+	 * @return <code>true</code> if the deadline passed before all tasks finished
+	 */
+	public boolean isTimedOut() {
+		return this._timedOut;
+	}
+	
+	@Override
+	public String toString() {
+		return "ShutdownReport[elapsed=" + (this._elapsedTime / 1000000L) + "ms, vetoed=" + this._vetoed + ", timedOut="
+			+ this._timedOut + ", slowest=" + getSlowestTasks() + "]";
+	}
+}
\ No newline at end of file
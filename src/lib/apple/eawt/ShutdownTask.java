@@ -0,0 +1,37 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+/**
+ * Work done by a {@link ShutdownOrchestrator} before the application quits, such as saving documents or closing connections.
+ *
+ * @see ShutdownOrchestrator#register(String, int, ShutdownTask, String...)
+ */
+public interface ShutdownTask {
+	/**
+	 * Called on a pool thread when the application is asked to quit, once the tasks it depends on have finished.
+	 * Should respond to interruption, as it is abandoned when the deadline passes.
+	 * @return <code>true</code> to let the application quit, or <code>false</code> to cancel the quit
+	 * @throws Exception if the task fails; this is reported, but does not cancel the quit
+	 */
+	public boolean shutdown() throws Exception;
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * An implementor is passed the files the application is asked to open in bounded chunks, followed by a completion signal.
+ * This lets the first files of a large drop be processed before the rest are looked at.
+ *
+ * @see Application#setStreamingOpenFileHandler(StreamingOpenFilesHandler, int)
+ */
+public interface StreamingOpenFilesHandler {
+	/**
+	 * Called for each chunk of a request, in order.
+	 * The list is a read-only view which must not be kept after the call returns; copy it to keep it.
+	 * @param files the next files to open
+	 * @param searchTerm the search term used to find the files, or <code>null</code>
+	 */
+	public void openFiles(final List<File> files, final String searchTerm);
+	
+	/**
+	 * Called once after the last chunk of a request.
+	 * @param count the number of files in the request
+	 */
+	public void openFilesCompleted(final int count);
+}
\ No newline at end of file
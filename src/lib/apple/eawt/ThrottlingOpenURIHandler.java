@@ -0,0 +1,259 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.awt.EventQueue;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lib.apple.eawt.AppEvent.OpenURIEvent;
+
+/**
+ * {@link OpenURIHandler} protecting the handler it wraps from floods of URIs.
+ *
+ * Install it with {@link Application#setOpenURIHandler(OpenURIHandler)} in place of the handler it wraps. A URI equal
+ * to one passed on within the de-duplication window is dropped. The others take a token from the bucket of the longest
+ * prefix registered with {@link #setLimit(String, double, int)} which the URI starts with, such as a scheme
+ * (<code>myapp:</code>) or a route (<code>myapp://documents/</code>), or else from the default bucket. When the bucket
+ * is empty the URI is dropped or, with {@link Policy#KEEP_LATEST}, kept in place of any URI kept earlier and passed on,
+ * on the AWT Event Dispatch thread, as soon as a token is available. Dropped and duplicate URIs are counted per bucket.
+ */
+public final class ThrottlingOpenURIHandler implements OpenURIHandler {
+	/**
+	 * What happens to a URI arriving when its bucket is empty.
+	 */
+	public static enum Policy {
+		/**
+		 * The URI is dropped.
+		 */
+		DROP,
+		
+		/**
+		 * The latest such URI of each bucket is passed on once a token is available; the ones it replaces are dropped.
+		 */
+		KEEP_LATEST
+	}
+	
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "lib.apple.eawt.ThrottlingOpenURIHandler");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	
+	private final OpenURIHandler _target;
+	private final Policy _policy;
+	private final Bucket _default;
+	private final Map<String, Bucket> _limits = new LinkedHashMap<>();
+	private final LinkedHashMap<String, Long> _recent = new LinkedHashMap<>();
+	private long _window = TimeUnit.MILLISECONDS.toNanos(500L);
+	
+	/**
+	 * @param target the handler to pass the URIs on to
+	 * @param permitsPerSecond the rate of the default bucket, or 0 for no limit
+	 * @param burst the number of URIs the default bucket lets through at once
+	 * @param policy what happens to the URIs arriving when their bucket is empty
+	 */
+	public ThrottlingOpenURIHandler(final OpenURIHandler target, final double permitsPerSecond, final int burst, final Policy policy) {
+		if (target == null) throw new NullPointerException("target");
+		this._target = target;
+		this._policy = policy;
+		this._default = new Bucket("", permitsPerSecond, burst);
+	}
+	
+	/**
+	 * Gives the URIs starting with a prefix a bucket of their own.
+	 * @param prefix the start of the URIs, compared ignoring case
+	 * @param permitsPerSecond the rate at which the bucket refills, or 0 for no limit
+	 * @param burst the number of URIs the bucket lets through at once
+	 */
+	public synchronized void setLimit(final String prefix, final double permitsPerSecond, final int burst) {
+		String key = prefix.toLowerCase();
+		this._limits.put(key, new Bucket(key, permitsPerSecond, burst));
+	}
+	
+	/**
+	 * @param window how long a URI passed on keeps an equal one from being passed on again, or 0 to pass on duplicates
+	 * @param unit the unit of the window
+	 */
+	public synchronized void setDuplicateWindow(final long window, final TimeUnit unit) {
+		this._window = unit.toNanos(window);
+		if (this._window <= 0L) this._recent.clear();
+	}
+	
+	/**
+	 * @return the number of URIs dropped because their bucket was empty
+	 */
+	public synchronized long getDroppedCount() {
+		long dropped = this._default._dropped;
+		for (Bucket bucket : this._limits.values()) {
+			dropped += bucket._dropped;
+		}
+		return dropped;
+	}
+	
+	/**
+	 * @param prefix a prefix given to {@link #setLimit(String, double, int)}, or an empty string for the default bucket
+	 * @return the number of URIs dropped because that bucket was empty
+	 */
+	public synchronized long getDroppedCount(final String prefix) {
+		Bucket bucket = (prefix.isEmpty() ? this._default : this._limits.get(prefix.toLowerCase()));
+		return (bucket == null ? 0L : bucket._dropped);
+	}
+	
+	/**
+	 * @return the number of URIs dropped as duplicates
+	 */
+	public synchronized long getDuplicateCount() {
+		long duplicates = this._default._duplicates;
+		for (Bucket bucket : this._limits.values()) {
+			duplicates += bucket._duplicates;
+		}
+		return duplicates;
+	}
+	
+	/**
+	 * @param prefix a prefix given to {@link #setLimit(String, double, int)}, or an empty string for the default bucket
+	 * @return the number of URIs of that bucket dropped as duplicates
+	 */
+	public synchronized long getDuplicateCount(final String prefix) {
+		Bucket bucket = (prefix.isEmpty() ? this._default : this._limits.get(prefix.toLowerCase()));
+		return (bucket == null ? 0L : bucket._duplicates);
+	}
+	
+	@Override
+	public void openURI(final OpenURIEvent e) {
+		URI uri = e.getURI();
+		if (uri == null) return;
+		String key = uri.toString();
+		long now = System.nanoTime();
+		synchronized (this) {
+			Bucket bucket = bucketFor(key.toLowerCase());
+			if (isDuplicate(key, now)) {
+				bucket._duplicates++;
+				return;
+			}
+			if (!bucket.take(now)) {
+				if (this._policy == Policy.KEEP_LATEST) {
+					bucket.keep(e, now);
+				} else {
+					bucket._dropped++;
+				}
+				return;
+			}
+			remember(key, now);
+		}
+		this._target.openURI(e);
+	}
+	
+	private boolean isDuplicate(String key, long now) {
+		if (this._window <= 0L) return false;
+		for (Iterator<Long> it = this._recent.values().iterator(); it.hasNext();) {
+			if (now - it.next().longValue() < this._window) break;
+			it.remove();
+		}
+		return this._recent.containsKey(key);
+	}
+	
+	private void remember(String key, long now) {
+		if (this._window <= 0L) return;
+		this._recent.remove(key);
+		this._recent.put(key, Long.valueOf(now));
+	}
+	
+	private Bucket bucketFor(String uri) {
+		Bucket best = this._default;
+		for (Bucket bucket : this._limits.values()) {
+			if (uri.startsWith(bucket._prefix) && bucket._prefix.length() > best._prefix.length()) best = bucket;
+		}
+		return best;
+	}
+	
+	private final class Bucket implements Runnable {
+		final String _prefix;
+		final double _rate;
+		final double _burst;
+		double _tokens;
+		long _refilled = System.nanoTime();
+		long _dropped = 0L;
+		long _duplicates = 0L;
+		OpenURIEvent _kept = null;
+		
+		Bucket(String prefix, double rate, int burst) {
+			this._prefix = prefix;
+			this._rate = rate;
+			this._burst = Math.max(1, burst);
+			this._tokens = this._burst;
+		}
+		
+		boolean take(long now) {
+			if (this._rate <= 0.0) return true;
+			this._tokens = Math.min(this._burst, this._tokens + (now - this._refilled) * this._rate / 1e9);
+			this._refilled = now;
+			if (this._tokens < 1.0) return false;
+			this._tokens -= 1.0;
+			return true;
+		}
+		
+		void keep(OpenURIEvent e, long now) {
+			if (this._kept != null) {
+				this._dropped++;
+			} else {
+				long delay = (long) Math.ceil((1.0 - this._tokens) * 1e9 / this._rate);
+				SCHEDULER.schedule(this, Math.max(1L, delay), TimeUnit.NANOSECONDS);
+			}
+			this._kept = e;
+		}
+		
+		// Passes on the kept URI once a token is available, on the thread handlers are called on.
+		@Override
+		public void run() {
+			final OpenURIEvent e;
+			synchronized (ThrottlingOpenURIHandler.this) {
+				e = this._kept;
+				if (e == null) return;
+				long now = System.nanoTime();
+				if (!take(now)) {
+					SCHEDULER.schedule(this, Math.max(1L, (long) Math.ceil((1.0 - this._tokens) * 1e9 / this._rate)), TimeUnit.NANOSECONDS);
+					return;
+				}
+				this._kept = null;
+				URI uri = e.getURI();
+				if (uri != null) remember(uri.toString(), now);
+			}
+			EventQueue.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					ThrottlingOpenURIHandler.this._target.openURI(e);
+				}
+			});
+		}
+	}
+}
\ No newline at end of file
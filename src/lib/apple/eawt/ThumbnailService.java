@@ -0,0 +1,516 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.SwingUtilities;
+
+import lib.apple.eawt.AppEvent.OpenFilesEvent;
+
+/**
+ * Generates and caches small previews of the files the application opens.
+ *
+ * Previews are decoded on a bounded pool of background threads and kept in two caches: the most recently used ones in
+ * memory, and all of them on disk in chunk files mapped into memory, from which they are copied without decoding. A
+ * preview is identified by the file system key of its file, or its canonical path, together with its modification
+ * time, so a changed file gets a new preview. Wrapping the application's handler with
+ * {@link #openFilesHandler(OpenFilesHandler)} starts generating the previews as soon as files are opened; the
+ * {@link Listener}s are told on the AWT Event Dispatch thread when each one is ready.
+ *
+ * When the disk cache holds its maximum number of chunks, the oldest chunk is deleted with the previews in it.
+ */
+public final class ThumbnailService implements Closeable {
+	/**
+	 * Decodes the preview of a file.
+	 */
+	public static interface Decoder {
+		/**
+		 * Called on a background thread.
+		 * @param file the file to preview
+		 * @param size the largest width and height of the preview
+		 * @return the preview, scaled down to size afterwards if larger, or <code>null</code> if the file has none
+		 * @throws IOException if the file cannot be read
+		 */
+		public BufferedImage decode(final File file, final int size) throws IOException;
+	}
+	
+	/**
+	 * Listener interface notified when a preview has been generated.
+	 */
+	public static interface Listener {
+		/**
+		 * Invoked on the AWT Event Dispatch thread.
+		 * @param file the file the preview is of
+		 * @param thumbnail the preview
+		 */
+		public void thumbnailReady(final File file, final BufferedImage thumbnail);
+	}
+	
+	/**
+	 * Decodes the images readable by {@link ImageIO}, reading only every so many pixels of a large image.
+	 */
+	public static final Decoder IMAGE_IO = new Decoder() {
+		@Override
+		public BufferedImage decode(final File file, final int size) throws IOException {
+			try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+				if (in == null) return null;
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+				if (!readers.hasNext()) return null;
+				ImageReader reader = readers.next();
+				try {
+					reader.setInput(in, true, true);
+					// Twice the size is kept, for the final scaling to smooth over the skipped pixels
+					int step = Math.max(reader.getWidth(0), reader.getHeight(0)) / (2 * size);
+					ImageReadParam param = reader.getDefaultReadParam();
+					if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+					return reader.read(0, param);
+				} finally {
+					reader.dispose();
+				}
+			}
+		}
+	};
+	
+	private static final int CHUNK_SIZE = 4 << 20;
+	private static final int CHUNK_MAGIC = 0x54484D42;
+	private static final int CHUNK_HEADER = 16;
+	private static final String CHUNK_PREFIX = "thumbnails-";
+	private static final String CHUNK_SUFFIX = ".chunk";
+	private static final int MAX_SIZE = 512;
+	
+	private final Path _directory;
+	private final int _size;
+	private final int _maxChunks;
+	private final ExecutorService _executor;
+	private final Map<String, BufferedImage> _memory;
+	private final ConcurrentMap<String, Future<BufferedImage>> _pending = new ConcurrentHashMap<>();
+	private final List<Listener> _listeners = new CopyOnWriteArrayList<>();
+	private final List<Chunk> _chunks = new ArrayList<>();
+	private final Map<String, Location> _index = new HashMap<>();
+	private volatile Decoder _decoder = IMAGE_IO;
+	
+	/**
+	 * Creates a service keeping 64 previews in memory and up to 64 MB of them on disk, decoding on two threads.
+	 * @param directory the directory of the disk cache, created if needed
+	 * @param size the largest width and height of a preview, at most 512
+	 * @throws IOException if the disk cache cannot be opened
+	 */
+	public ThumbnailService(final Path directory, final int size) throws IOException {
+		this(directory, size, 64, 16, newExecutor(2));
+	}
+	
+	/**
+	 * @param directory the directory of the disk cache, created if needed
+	 * @param size the largest width and height of a preview, at most 512
+	 * @param memoryEntries the number of previews kept in memory
+	 * @param diskChunks the number of 4 MB chunk files kept on disk
+	 * @param executor runs the decoding; it should have a bounded queue, as requests it rejects are dropped
+	 * @throws IOException if the disk cache cannot be opened
+	 */
+	public ThumbnailService(final Path directory, final int size, final int memoryEntries, final int diskChunks,
+	final ExecutorService executor) throws IOException {
+		if (size <= 0 || size > MAX_SIZE) throw new IllegalArgumentException("size: " + size);
+		if (diskChunks <= 0) throw new IllegalArgumentException("diskChunks: " + diskChunks);
+		this._directory = directory;
+		this._size = size;
+		this._maxChunks = diskChunks;
+		this._executor = executor;
+		this._memory = Collections.synchronizedMap(new LinkedHashMap<String, BufferedImage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+				return size() > memoryEntries;
+			}
+		});
+		Files.createDirectories(directory);
+		openChunks();
+	}
+	
+	/**
+	 * Creates a pool of daemon threads with a bounded queue, suitable for a service.
+	 * @param threads the number of threads
+	 * @return the pool
+	 */
+	public static ExecutorService newExecutor(final int threads) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1024),
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "lib.apple.eawt.ThumbnailService");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+	}
+	
+	/**
+	 * @param decoder decodes the previews; {@link #IMAGE_IO} by default
+	 */
+	public void setDecoder(final Decoder decoder) {
+		this._decoder = (decoder == null ? IMAGE_IO : decoder);
+	}
+	
+	/**
+	 * @param listener to be notified when a preview has been generated
+	 */
+	public void addListener(final Listener listener) {
+		this._listeners.add(listener);
+	}
+	
+	/**
+	 * @param listener to be removed
+	 */
+	public void removeListener(final Listener listener) {
+		this._listeners.remove(listener);
+	}
+	
+	/**
+	 * Returns the preview of a file, generating it in the background if it is not cached.
+	 * @param file the file
+	 * @return the preview, whose value is <code>null</code> if the file has none, or <code>null</code> if the pool is full
+	 */
+	public Future<BufferedImage> getThumbnail(final File file) {
+		final String path = file.getAbsolutePath();
+		Future<BufferedImage> pending = this._pending.get(path);
+		if (pending != null) return pending;
+		FutureTask<BufferedImage> task = new FutureTask<>(new Callable<BufferedImage>() {
+			@Override
+			public BufferedImage call() throws Exception {
+				try {
+					return generate(file);
+				} finally {
+					ThumbnailService.this._pending.remove(path);
+				}
+			}
+		});
+		pending = this._pending.putIfAbsent(path, task);
+		if (pending != null) return pending;
+		try {
+			this._executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			this._pending.remove(path, task);
+			return null;
+		}
+		return task;
+	}
+	
+	/**
+	 * Returns the preview of a file if it is cached, without decoding anything. Reads the attributes of the file.
+	 * @param file the file
+	 * @return the preview, or <code>null</code> if it is not cached
+	 */
+	public BufferedImage getCachedThumbnail(final File file) {
+		String key = keyOf(file);
+		return (key == null ? null : lookup(key));
+	}
+	
+	/**
+	 * @param target the handler to pass the requests on to, or <code>null</code>
+	 * @return a handler starting to generate the preview of each file it is asked to open before passing the request on
+	 */
+	public OpenFilesHandler openFilesHandler(final OpenFilesHandler target) {
+		return new OpenFilesHandler() {
+			@Override
+			public void openFiles(final OpenFilesEvent e) {
+				List<File> files = e.getFiles();
+				if (files != null) {
+					for (File file : files) {
+						getThumbnail(file);
+					}
+				}
+				if (target != null) target.openFiles(e);
+			}
+		};
+	}
+	
+	/**
+	 * Writes the disk cache out and closes its files. The executor is not shut down.
+	 * @throws IOException if a chunk file cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this._chunks) {
+			for (Chunk chunk : this._chunks) {
+				chunk._buffer.force();
+				chunk._channel.close();
+			}
+			this._chunks.clear();
+			this._index.clear();
+		}
+	}
+	
+	/**
+	 * Scales an image down to fit a square, keeping its proportions.
+	 * @param image the image
+	 * @param size the largest width and height
+	 * @return an image of type {@link BufferedImage#TYPE_INT_ARGB}
+	 */
+	public static BufferedImage scale(final BufferedImage image, final int size) {
+		double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+		int w = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		int h = Math.max(1, (int) Math.round(image.getHeight() * scale));
+		BufferedImage thumbnail = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = thumbnail.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, w, h, null);
+		} finally {
+			g.dispose();
+		}
+		return thumbnail;
+	}
+	
+	private BufferedImage generate(final File file) throws IOException {
+		String key = keyOf(file);
+		if (key == null) return null;
+		BufferedImage thumbnail = lookup(key);
+		if (thumbnail == null) {
+			BufferedImage decoded = this._decoder.decode(file, this._size);
+			if (decoded == null) return null;
+			thumbnail = scale(decoded, this._size);
+			store(key, thumbnail);
+			this._memory.put(key, thumbnail);
+		}
+		if (!this._listeners.isEmpty()) {
+			final BufferedImage ready = thumbnail;
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					for (Listener l : ThumbnailService.this._listeners) {
+						l.thumbnailReady(file, ready);
+					}
+				}
+			});
+		}
+		return thumbnail;
+	}
+	
+	private BufferedImage lookup(String key) {
+		BufferedImage thumbnail = this._memory.get(key);
+		if (thumbnail != null) return thumbnail;
+		synchronized (this._chunks) {
+			Location location = this._index.get(key);
+			if (location == null) return null;
+			ByteBuffer view = location._chunk._buffer.duplicate();
+			view.position(location._offset);
+			int w = view.getInt();
+			int h = view.getInt();
+			thumbnail = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+			view.asIntBuffer().get(((DataBufferInt) thumbnail.getRaster().getDataBuffer()).getData());
+		}
+		this._memory.put(key, thumbnail);
+		return thumbnail;
+	}
+	
+	// Appends a record to the newest chunk: key length, key, width, height and the ARGB pixels.
+	private void store(String key, BufferedImage thumbnail) throws IOException {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int w = thumbnail.getWidth(), h = thumbnail.getHeight();
+		int length = 4 + keyBytes.length + 8 + w * h * 4;
+		if (CHUNK_HEADER + length > CHUNK_SIZE) return;
+		int[] pixels = ((DataBufferInt) thumbnail.getRaster().getDataBuffer()).getData();
+		synchronized (this._chunks) {
+			if (this._index.containsKey(key)) return;
+			Chunk chunk = (this._chunks.isEmpty() ? null : this._chunks.get(this._chunks.size() - 1));
+			if (chunk == null || chunk.end() + length > CHUNK_SIZE) {
+				chunk = createChunk(chunk == null ? 0 : chunk._number + 1);
+			}
+			int offset = chunk.end();
+			ByteBuffer view = chunk._buffer.duplicate();
+			view.position(offset);
+			view.putInt(keyBytes.length);
+			view.put(keyBytes);
+			int pixelsAt = view.position();
+			view.putInt(w);
+			view.putInt(h);
+			view.asIntBuffer().put(pixels, 0, w * h);
+			chunk._buffer.putInt(4, offset + length);
+			this._index.put(key, new Location(chunk, pixelsAt));
+		}
+	}
+	
+	private Chunk createChunk(int number) throws IOException {
+		Chunk chunk = mapChunk(this._directory.resolve(CHUNK_PREFIX + number + CHUNK_SUFFIX), number);
+		chunk._buffer.putInt(0, CHUNK_MAGIC);
+		chunk._buffer.putInt(4, CHUNK_HEADER);
+		this._chunks.add(chunk);
+		trimChunks();
+		return chunk;
+	}
+	
+	// Deletes the oldest chunks, with their previews, down to the maximum number.
+	private void trimChunks() throws IOException {
+		while (this._chunks.size() > this._maxChunks) {
+			Chunk oldest = this._chunks.remove(0);
+			for (Iterator<Location> it = this._index.values().iterator(); it.hasNext();) {
+				if (it.next()._chunk == oldest) it.remove();
+			}
+			oldest._channel.close();
+			Files.deleteIfExists(oldest._path);
+		}
+	}
+	
+	// Maps the chunks left by earlier runs and indexes their records, skipping over the pixels.
+	private void openChunks() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this._directory, CHUNK_PREFIX + "*" + CHUNK_SUFFIX)) {
+			for (Path path : stream) {
+				paths.add(path);
+			}
+		}
+		List<Chunk> chunks = new ArrayList<>();
+		for (Path path : paths) {
+			String name = path.getFileName().toString();
+			int number;
+			try {
+				number = Integer.parseInt(name.substring(CHUNK_PREFIX.length(), name.length() - CHUNK_SUFFIX.length()));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			Chunk chunk = mapChunk(path, number);
+			if (chunk._buffer.getInt(0) != CHUNK_MAGIC || chunk.end() < CHUNK_HEADER || chunk.end() > CHUNK_SIZE) {
+				chunk._channel.close();
+				Files.deleteIfExists(path);
+				continue;
+			}
+			chunks.add(chunk);
+		}
+		Collections.sort(chunks);
+		synchronized (this._chunks) {
+			this._chunks.addAll(chunks);
+			for (Chunk chunk : chunks) {
+				ByteBuffer view = chunk._buffer.duplicate();
+				view.position(CHUNK_HEADER);
+				view.limit(chunk.end());
+				// A damaged record ends the chunk; the records before it are kept
+				while (view.remaining() >= 4) {
+					int length = view.getInt();
+					if (length < 0 || length > view.remaining() - 8) break;
+					byte[] keyBytes = new byte[length];
+					view.get(keyBytes);
+					int pixelsAt = view.position();
+					int w = view.getInt(), h = view.getInt();
+					if (w < 0 || h < 0 || (long) w * h * 4 > view.remaining()) break;
+					view.position(view.position() + w * h * 4);
+					this._index.put(new String(keyBytes, StandardCharsets.UTF_8), new Location(chunk, pixelsAt));
+				}
+			}
+			trimChunks(); // In case the maximum was lowered since the last run
+		}
+	}
+	
+	private static Chunk mapChunk(Path path, int number) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			return new Chunk(path, number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0L, CHUNK_SIZE));
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	// File key or canonical path, with the modification time.
+	private static String keyOf(File file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			if (!attrs.isRegularFile()) return null;
+			Object key = attrs.fileKey();
+			return (key != null ? key.toString() : file.getCanonicalPath()) + "@" + attrs.lastModifiedTime().toMillis();
+		} catch (IOException | SecurityException e) {
+			return null;
+		}
+	}
+	
+	private static final class Chunk implements Comparable<Chunk> {
+		final Path _path;
+		final int _number;
+		final FileChannel _channel;
+		final MappedByteBuffer _buffer;
+		
+		Chunk(Path path, int number, FileChannel channel, MappedByteBuffer buffer) {
+			this._path = path;
+			this._number = number;
+			this._channel = channel;
+			this._buffer = buffer;
+		}
+		
+		int end() {
+			return this._buffer.getInt(4);
+		}
+		
+		@Override
+		public int compareTo(Chunk o) {
+			return Integer.compare(this._number, o._number);
+		}
+	}
+	
+	private static final class Location {
+		final Chunk _chunk;
+		final int _offset;
+		
+		Location(Chunk chunk, int offset) {
+			this._chunk = chunk;
+			this._offset = offset;
+		}
+	}
+}
\ No newline at end of file
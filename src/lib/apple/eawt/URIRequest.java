@@ -0,0 +1,244 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A URI being routed by a {@link URIRouter}, split into its parts and with its path and query parameters decoded.
+ *
+ * The router reuses a single instance, so it is only valid during the call it is passed to.
+ *
+ * @see URIRouter
+ */
+public final class URIRequest {
+	private URI _uri = null;
+	private String _scheme = "";
+	private String _host = "";
+	private String[] _segments = new String[8];
+	private int _segmentCount = 0;
+	private String[] _parameterNames = new String[4];
+	private String[] _parameterValues = new String[4];
+	private int _parameterCount = 0;
+	private String[] _queryNames = new String[4];
+	private String[] _queryValues = new String[4];
+	private int _queryCount = 0;
+	boolean _busy = false;
+	
+	URIRequest() { }
+	
+	/**
+	 * @return the URI being routed
+	 */
+	public URI getURI() {
+		return this._uri;
+	}
+	
+	/**
+	 * @return the scheme of the URI, in lower case
+	 */
+	public String getScheme() {
+		return this._scheme;
+	}
+	
+	/**
+	 * @return the host of the URI, in lower case, or an empty string if it has none
+	 */
+	public String getHost() {
+		return this._host;
+	}
+	
+	/**
+	 * @return the number of path segments
+	 */
+	public int getSegmentCount() {
+		return this._segmentCount;
+	}
+	
+	/**
+	 * @param index the index of the segment
+	 * @return the decoded path segment
+	 */
+	public String getSegment(final int index) {
+		if (index < 0 || index >= this._segmentCount) throw new IndexOutOfBoundsException("index: " + index);
+		return this._segments[index];
+	}
+	
+	/**
+	 * @param name the name of a placeholder of the matched route
+	 * @return the decoded segment matched by the placeholder, or <code>null</code>
+	 */
+	public String getParameter(final String name) {
+		for (int i = 0; i < this._parameterCount; i++) {
+			if (this._parameterNames[i].equals(name)) return this._parameterValues[i];
+		}
+		return null;
+	}
+	
+	/**
+	 * @param name the name of a query parameter
+	 * @return the decoded value of its first occurrence, an empty string if it has no value, or <code>null</code> if it is absent
+	 */
+	public String getQueryParameter(final String name) {
+		for (int i = 0; i < this._queryCount; i++) {
+			if (this._queryNames[i].equals(name)) return this._queryValues[i];
+		}
+		return null;
+	}
+	
+	/**
+	 * @param name the name of a query parameter
+	 * @return the decoded values of all its occurrences, in order
+	 */
+	public String[] getQueryParameters(final String name) {
+		String[] values = new String[0];
+		for (int i = 0; i < this._queryCount; i++) {
+			if (this._queryNames[i].equals(name)) {
+				values = Arrays.copyOf(values, values.length + 1);
+				values[values.length - 1] = this._queryValues[i];
+			}
+		}
+		return values;
+	}
+	
+	// Splits and decodes the URI, reusing the arrays of the previous one.
+	void reset(URI uri) {
+		this._uri = uri;
+		this._scheme = (uri.getScheme() == null ? "" : uri.getScheme().toLowerCase());
+		this._host = (uri.getHost() == null ? "" : uri.getHost().toLowerCase());
+		this._segmentCount = 0;
+		this._parameterCount = 0;
+		this._queryCount = 0;
+		String path;
+		String query;
+		if (uri.isOpaque()) {
+			// mailto:x or myapp:open?doc=1 has no authority; route its scheme-specific part as a path
+			String ssp = uri.getRawSchemeSpecificPart();
+			int q = ssp.indexOf('?');
+			path = (q < 0 ? ssp : ssp.substring(0, q));
+			query = (q < 0 ? null : ssp.substring(q + 1));
+		} else {
+			path = uri.getRawPath();
+			query = uri.getRawQuery();
+		}
+		if (path != null) {
+			int start = 0;
+			int length = path.length();
+			while (start <= length) {
+				int end = path.indexOf('/', start);
+				if (end < 0) end = length;
+				if (end > start) addSegment(decode(path.substring(start, end), false));
+				start = end + 1;
+			}
+		}
+		if (query != null) {
+			int start = 0;
+			int length = query.length();
+			while (start <= length) {
+				int end = query.indexOf('&', start);
+				if (end < 0) end = length;
+				if (end > start) {
+					int eq = query.indexOf('=', start);
+					if (eq < 0 || eq > end) {
+						addQuery(decode(query.substring(start, end), true), "");
+					} else {
+						addQuery(decode(query.substring(start, eq), true), decode(query.substring(eq + 1, end), true));
+					}
+				}
+				start = end + 1;
+			}
+		}
+	}
+	
+	int parameterCount() {
+		return this._parameterCount;
+	}
+	
+	// Placeholder values are collected while matching, and named once the route is known.
+	void pushParameter(String value) {
+		if (this._parameterCount == this._parameterValues.length) {
+			this._parameterNames = Arrays.copyOf(this._parameterNames, this._parameterCount * 2);
+			this._parameterValues = Arrays.copyOf(this._parameterValues, this._parameterCount * 2);
+		}
+		this._parameterValues[this._parameterCount++] = value;
+	}
+	
+	void popParameters(int count) {
+		this._parameterCount = count;
+	}
+	
+	void nameParameters(String[] names) {
+		this._parameterCount = Math.min(this._parameterCount, names.length);
+		System.arraycopy(names, 0, this._parameterNames, 0, this._parameterCount);
+	}
+	
+	private void addSegment(String segment) {
+		if (this._segmentCount == this._segments.length) {
+			this._segments = Arrays.copyOf(this._segments, this._segmentCount * 2);
+		}
+		this._segments[this._segmentCount++] = segment;
+	}
+	
+	private void addQuery(String name, String value) {
+		if (this._queryCount == this._queryNames.length) {
+			this._queryNames = Arrays.copyOf(this._queryNames, this._queryCount * 2);
+			this._queryValues = Arrays.copyOf(this._queryValues, this._queryCount * 2);
+		}
+		this._queryNames[this._queryCount] = name;
+		this._queryValues[this._queryCount++] = value;
+	}
+	
+	// Percent-decodes UTF-8, leaving malformed escapes as they are.
+	private static String decode(String s, boolean plusIsSpace) {
+		if (s.indexOf('%') < 0 && (!plusIsSpace || s.indexOf('+') < 0)) return s;
+		StringBuilder sb = new StringBuilder(s.length());
+		byte[] bytes = null;
+		int i = 0;
+		while (i < s.length()) {
+			char c = s.charAt(i);
+			if (c == '%' && escaped(s, i)) {
+				if (bytes == null) bytes = new byte[s.length() / 3];
+				int n = 0;
+				while (i < s.length() && s.charAt(i) == '%' && escaped(s, i)) {
+					bytes[n++] = (byte) (Character.digit(s.charAt(i + 1), 16) << 4 | Character.digit(s.charAt(i + 2), 16));
+					i += 3;
+				}
+				sb.append(new String(bytes, 0, n, StandardCharsets.UTF_8));
+			} else {
+				sb.append(c == '+' && plusIsSpace ? ' ' : c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+	
+	private static boolean escaped(String s, int i) {
+		return (i + 2 < s.length() && Character.digit(s.charAt(i + 1), 16) >= 0 && Character.digit(s.charAt(i + 2), 16) >= 0);
+	}
+	
+	@Override
+	public String toString() {
+		return "URIRequest[" + this._uri + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lib.apple.eawt.AppEvent.OpenURIEvent;
+
+/**
+ * {@link OpenURIHandler} passing each URI to the route registered for its pattern.
+ *
+ * Install it with {@link Application#setOpenURIHandler(OpenURIHandler)}. Routes are registered with templates of the
+ * form <code>scheme://host/segment/{name}/*</code>: the scheme and the literal segments must match exactly (the scheme
+ * and host ignoring case), a host of <code>*</code> matches any host, a <code>{name}</code> segment matches any single
+ * segment and makes it available through {@link URIRequest#getParameter(String)}, and a final <code>*</code> matches
+ * any remaining segments. When several routes match, literal segments are preferred over placeholders, and
+ * placeholders over a final <code>*</code>.
+ *
+ * The templates are compiled into a tree with one level per part of the URI, so the cost of routing a URI depends on
+ * its length rather than on the number of routes. Each URI is read from its event and parsed once, into a
+ * {@link URIRequest} which is reused from one URI to the next.
+ */
+public final class URIRouter implements OpenURIHandler {
+	/**
+	 * Handles the URIs matching a template.
+	 */
+	public static interface Route {
+		/**
+		 * @param request the URI, valid only during the call
+		 */
+		public void openURI(final URIRequest request);
+	}
+	
+	private final Node _root = new Node();
+	private final ThreadLocal<URIRequest> _requests = new ThreadLocal<URIRequest>() {
+		@Override
+		protected URIRequest initialValue() {
+			return new URIRequest();
+		}
+	};
+	private volatile Route _defaultRoute = null;
+	
+	/**
+	 * Registers a route, replacing any registered with the same template.
+	 * @param template the pattern of the URIs to route, such as <code>myapp://documents/{id}/pages/*</code>
+	 * @param route the route
+	 */
+	public void addRoute(final String template, final Route route) {
+		if (route == null) throw new NullPointerException("route");
+		List<String> keys = parse(template);
+		List<String> names = new ArrayList<>();
+		for (int i = 2; i < keys.size(); i++) {
+			String key = keys.get(i);
+			if (key.startsWith("{") && key.endsWith("}")) names.add(key.substring(1, key.length() - 1));
+		}
+		synchronized (this._root) {
+			Node node = this._root;
+			for (String key : keys) {
+				node = node.child(key);
+			}
+			node._names = names.toArray(new String[names.size()]);
+			node._route = route;
+		}
+	}
+	
+	/**
+	 * @param route the route passed the URIs matching no template, or <code>null</code> to ignore them
+	 */
+	public void setDefaultRoute(final Route route) {
+		this._defaultRoute = route;
+	}
+	
+	@Override
+	public void openURI(final OpenURIEvent e) {
+		URI uri = e.getURI();
+		if (uri != null) route(uri);
+	}
+	
+	/**
+	 * Passes a URI to its route on the calling thread.
+	 * @param uri the URI
+	 * @return <code>true</code> if a route, possibly the default one, was found
+	 */
+	public boolean route(final URI uri) {
+		URIRequest request = this._requests.get();
+		if (request._busy) request = new URIRequest(); // Routed from within a route
+		request._busy = true;
+		try {
+			request.reset(uri);
+			Node node = this._root._literals.get(request.getScheme());
+			Node target = (node != null ? matchHost(node, request) : null);
+			Route route;
+			if (target != null) {
+				request.nameParameters(target._names);
+				route = target._route;
+			} else {
+				route = this._defaultRoute;
+			}
+			if (route == null) return false;
+			route.openURI(request);
+			return true;
+		} finally {
+			request._busy = false;
+		}
+	}
+	
+	// The literal host first, then the wildcard host, backtracking like the segments below them.
+	private static Node matchHost(Node node, URIRequest request) {
+		Node child = node._literals.get(request.getHost());
+		if (child != null) {
+			Node target = match(child, request, 0);
+			if (target != null) return target;
+		}
+		return (node._parameter != null ? match(node._parameter, request, 0) : null);
+	}
+	
+	// Depth first, trying literals, then placeholders, then a trailing wildcard.
+	private static Node match(Node node, URIRequest request, int index) {
+		if (index == request.getSegmentCount()) {
+			if (node._route != null) return node;
+			return (node._rest != null && node._rest._route != null ? node._rest : null);
+		}
+		String segment = request.getSegment(index);
+		Node child = node._literals.get(segment);
+		if (child != null) {
+			Node target = match(child, request, index + 1);
+			if (target != null) return target;
+		}
+		if (node._parameter != null) {
+			int count = request.parameterCount();
+			request.pushParameter(segment);
+			Node target = match(node._parameter, request, index + 1);
+			if (target != null) return target;
+			request.popParameters(count);
+		}
+		return (node._rest != null && node._rest._route != null ? node._rest : null);
+	}
+	
+	// Splits a template into its scheme, host and path segments.
+	private static List<String> parse(String template) {
+		int colon = template.indexOf("://");
+		if (colon <= 0) throw new IllegalArgumentException("template: " + template);
+		List<String> keys = new ArrayList<>();
+		keys.add(template.substring(0, colon).toLowerCase());
+		int start = colon + 3;
+		int slash = template.indexOf('/', start);
+		String host = template.substring(start, slash < 0 ? template.length() : slash).toLowerCase();
+		keys.add(host.equals("*") ? "{}" : host);
+		if (slash >= 0) {
+			for (String segment : template.substring(slash + 1).split("/")) {
+				if (!segment.isEmpty()) keys.add(segment);
+			}
+		}
+		for (int i = 2; i < keys.size() - 1; i++) {
+			if (keys.get(i).equals("*")) throw new IllegalArgumentException("* must be last: " + template);
+		}
+		return keys;
+	}
+	
+	private static final class Node {
+		final ConcurrentMap<String, Node> _literals = new ConcurrentHashMap<>();
+		volatile Node _parameter = null;
+		volatile Node _rest = null;
+		volatile String[] _names = null;
+		volatile Route _route = null;
+		
+		Node child(String key) {
+			if (key.equals("*")) {
+				if (this._rest == null) this._rest = new Node();
+				return this._rest;
+			}
+			if (key.startsWith("{") && key.endsWith("}")) {
+				if (this._parameter == null) this._parameter = new Node();
+				return this._parameter;
+			}
+			Node child = this._literals.get(key);
+			if (child == null) {
+				child = new Node();
+				this._literals.put(key, child);
+			}
+			return child;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+/**
+ * Gesture event delivered by a {@link GestureHandoff}, rebuilt from the primitive values the
+ * native callback stored in the hand-off buffer.
+ *
+ * The hand-off reuses a single instance, so it is only valid during the call it is passed to.
+ *
+ * @see GestureHandoff
+ */
+public final class BufferedGestureEvent implements GesturePhaseEvent, MagnificationEvent, RotationEvent, SwipeEvent {
+	private double _magnification = 0.0;
+	private double _rotation = 0.0;
+	private long _timestamp = 0L;
+	
+	BufferedGestureEvent() { }
+	
+	void set(double magnification, double rotation, long timestamp) {
+		this._magnification = magnification;
+		this._rotation = rotation;
+		this._timestamp = timestamp;
+	}
+	
+	@Override
+	public double getMagnification() {
+		return this._magnification;
+	}
+	
+	@Override
+	public double getRotation() {
+		return this._rotation;
+	}
+	
+	/**
+	 * @return the {@link System#nanoTime()} at which the native event was received
+	 */
+	public long getTimestamp() {
+		return this._timestamp;
+	}
+	
+	/**
+	 * Does nothing. The native event has already been delivered by the time it is handed off.
+	 */
+	@Override
+	public void consume() { }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+/**
+ * Magnification or rotation event delivered by a {@link GestureCoalescer}, combining the native events
+ * received during one frame.
+ *
+ * The coalescer reuses a single instance, so it is only valid during the call it is passed to.
+ *
+ * @see GestureCoalescer
+ */
+public final class CoalescedGestureEvent implements MagnificationEvent, RotationEvent {
+	private double _magnification = 0.0;
+	private double _rotation = 0.0;
+	private int _samples = 0;
+	private GestureEvent _dispatched = null;
+	
+	CoalescedGestureEvent() { }
+	
+	void set(double magnification, double rotation, int samples) {
+		set(magnification, rotation, samples, null);
+	}
+	
+	void set(double magnification, double rotation, int samples, GestureEvent dispatched) {
+		this._magnification = magnification;
+		this._rotation = rotation;
+		this._samples = samples;
+		this._dispatched = dispatched;
+	}
+	
+	/**
+	 * @return the magnification of the combined samples, which scales the same as applying each of them in turn
+	 */
+	@Override
+	public double getMagnification() {
+		return this._magnification;
+	}
+	
+	/**
+	 * @return the sum of the rotations of the combined samples, in degrees
+	 */
+	@Override
+	public double getRotation() {
+		return this._rotation;
+	}
+	
+	/**
+	 * @return the number of native events combined into this one
+	 */
+	public int getSampleCount() {
+		return this._samples;
+	}
+	
+	/**
+	 * Consumes the native event being dispatched when this one was delivered, if any. Does nothing for events
+	 * delivered after their native events, which have already been dispatched by then.
+	 */
+	@Override
+	public void consume() {
+		if (this._dispatched != null) this._dispatched.consume();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+/**
+ * Gesture listener that combines the magnification and rotation events received during a frame into one
+ * {@link CoalescedGestureEvent}, so that a listener re-rendering on each event does so at the frame rate
+ * instead of at the rate of the trackpad.
+ *
+ * The coalescer is registered with {@link GestureUtilities#addGestureListenerTo(javax.swing.JComponent, GestureListener)}
+ * in place of the listener it wraps. The first event of a burst is delivered right away, later ones once per frame, and the
+ * rest of a gesture is delivered when it ends. Phase and swipe events are passed through as they arrive.
+ * Like all gesture listeners, it is only called from the AWT Event Dispatch thread, and it calls the wrapped listener on it too.
+ */
+public final class GestureCoalescer extends GestureAdapter {
+	private final GestureListener _target;
+	private final Timer _timer;
+	private final CoalescedGestureEvent _event = new CoalescedGestureEvent();
+	private double _scale = 1.0;
+	private int _magnifications = 0;
+	private double _rotation = 0.0;
+	private int _rotations = 0;
+	
+	/**
+	 * Creates a coalescer delivering once per refresh of the default screen, or at 60 Hz if the refresh rate is unknown.
+	 * @param target the listener to deliver the combined events to
+	 */
+	public GestureCoalescer(final GestureListener target) {
+		this(target, frameInterval(), TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Creates a coalescer delivering at a fixed interval, with millisecond resolution.
+	 * @param target the listener to deliver the combined events to
+	 * @param interval the time between two deliveries
+	 * @param unit the unit of the interval
+	 */
+	public GestureCoalescer(final GestureListener target, final long interval, final TimeUnit unit) {
+		if (target == null) throw new NullPointerException("target");
+		this._target = target;
+		this._timer = new Timer((int) Math.max(1, unit.toMillis(interval)), new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (!flush()) GestureCoalescer.this._timer.stop(); // Idle until the next burst
+			}
+		});
+		this._timer.setCoalesce(true);
+	}
+	
+	/**
+	 * @return the listener the combined events are delivered to
+	 */
+	public GestureListener getTarget() {
+		return this._target;
+	}
+	
+	/**
+	 * Delivers the pending magnification and rotation right away.
+	 * @return <code>true</code> if anything was pending
+	 */
+	public boolean flush() {
+		boolean pending = false;
+		if (this._magnifications > 0) {
+			pending = true;
+			this._event.set(this._scale - 1.0, 0.0, this._magnifications);
+			this._scale = 1.0;
+			this._magnifications = 0;
+			if (this._target instanceof MagnificationListener)
+				((MagnificationListener) this._target).magnify(this._event);
+		}
+		if (this._rotations > 0) {
+			pending = true;
+			this._event.set(0.0, this._rotation, this._rotations);
+			this._rotation = 0.0;
+			this._rotations = 0;
+			if (this._target instanceof RotationListener)
+				((RotationListener) this._target).rotate(this._event);
+		}
+		return pending;
+	}
+	
+	@Override
+	public void gestureBegan(final GesturePhaseEvent e) {
+		if (this._target instanceof GesturePhaseListener)
+			((GesturePhaseListener) this._target).gestureBegan(e);
+	}
+	
+	@Override
+	public void gestureEnded(final GesturePhaseEvent e) {
+		this._timer.stop();
+		flush();
+		if (this._target instanceof GesturePhaseListener)
+			((GesturePhaseListener) this._target).gestureEnded(e);
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		this._scale *= 1.0 + e.getMagnification();
+		this._magnifications++;
+		burst();
+	}
+	
+	@Override
+	public void rotate(final RotationEvent e) {
+		this._rotation += e.getRotation();
+		this._rotations++;
+		burst();
+	}
+	
+	@Override
+	public void swipedDown(final SwipeEvent e) {
+		if (this._target instanceof SwipeListener)
+			((SwipeListener) this._target).swipedDown(e);
+	}
+	
+	@Override
+	public void swipedLeft(final SwipeEvent e) {
+		if (this._target instanceof SwipeListener)
+			((SwipeListener) this._target).swipedLeft(e);
+	}
+	
+	@Override
+	public void swipedRight(final SwipeEvent e) {
+		if (this._target instanceof SwipeListener)
+			((SwipeListener) this._target).swipedRight(e);
+	}
+	
+	@Override
+	public void swipedUp(final SwipeEvent e) {
+		if (this._target instanceof SwipeListener)
+			((SwipeListener) this._target).swipedUp(e);
+	}
+	
+	// The first event after an idle frame goes out at once, the following ones with the timer.
+	private void burst() {
+		if (!this._timer.isRunning()) {
+			flush();
+			this._timer.start();
+		}
+	}
+	
+	private static long frameInterval() {
+		int rate = DisplayMode.REFRESH_RATE_UNKNOWN;
+		try {
+			if (!GraphicsEnvironment.isHeadless())
+				rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		} catch (HeadlessException e) {
+		}
+		return TimeUnit.SECONDS.toNanos(1) / (rate > 0 ? rate : 60);
+	}
+}
\ No newline at end of file
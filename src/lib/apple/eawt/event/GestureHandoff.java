@@ -0,0 +1,345 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.EventQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gesture listener that only copies each native gesture into a preallocated ring buffer and returns, so that a slow
+ * listener does not hold up the delivery of the following gestures. The wrapped listener is called from the buffer
+ * in batches, either on a dedicated consumer thread or on the AWT Event Dispatch thread once the current native events
+ * have been handled.
+ *
+ * The hand-off is registered with {@link GestureUtilities#addGestureListenerTo(javax.swing.JComponent, GestureListener)}
+ * in place of the listener it wraps. The native side only calls it from the AWT Event Dispatch thread, which makes it
+ * the single producer of the buffer; the buffer holds the type, value and arrival time of each gesture as primitives.
+ */
+public final class GestureHandoff extends GestureAdapter {
+	/**
+	 * What happens to a gesture arriving while the buffer is full.
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * The oldest buffered gesture is discarded to make room.
+		 */
+		DROP_OLDEST,
+		
+		/**
+		 * The arriving gesture is discarded.
+		 */
+		DROP_NEWEST,
+		
+		/**
+		 * The native callback waits until the consumer makes room. Not available with {@link Drain#EVENT_DISPATCH_THREAD}.
+		 */
+		BLOCK
+	}
+	
+	/**
+	 * Where the wrapped listener is called.
+	 */
+	public static enum Drain {
+		/**
+		 * On a daemon thread owned by the hand-off. Swing components must not be touched from the listener.
+		 */
+		CONSUMER_THREAD,
+		
+		/**
+		 * On the AWT Event Dispatch thread, after the native events being dispatched have been handled.
+		 */
+		EVENT_DISPATCH_THREAD
+	}
+	
+	private static final byte GESTURE_BEGAN = 0;
+	private static final byte GESTURE_ENDED = 1;
+	private static final byte MAGNIFY = 2;
+	private static final byte ROTATE = 3;
+	private static final byte SWIPED_UP = 4;
+	private static final byte SWIPED_DOWN = 5;
+	private static final byte SWIPED_LEFT = 6;
+	private static final byte SWIPED_RIGHT = 7;
+	
+	private static final int BATCH = 64;
+	private static final long BLOCK_PARK_NANOS = 50000L;
+	
+	private final GestureListener _target;
+	private final OverflowPolicy _policy;
+	private final int _mask;
+	
+	// The ring buffer. Slots are written by the producer only, after it owns them.
+	private final byte[] _types;
+	private final double[] _values;
+	private final long[] _timestamps;
+	private final AtomicLong _head = new AtomicLong();
+	private final AtomicLong _tail = new AtomicLong();
+	private final AtomicLong _dropped = new AtomicLong();
+	
+	// Consumer side, only touched while draining.
+	private final byte[] _batchTypes = new byte[BATCH];
+	private final double[] _batchValues = new double[BATCH];
+	private final long[] _batchTimestamps = new long[BATCH];
+	private final BufferedGestureEvent _event = new BufferedGestureEvent();
+	
+	private final Thread _consumer;
+	private final Runnable _drainTask;
+	private final AtomicBoolean _drainScheduled = new AtomicBoolean();
+	private volatile boolean _consumerWaiting = false;
+	private volatile boolean _closed = false;
+	
+	/**
+	 * @param target the listener to hand the gestures to
+	 * @param capacity the number of gestures the buffer holds, rounded up to a power of two
+	 * @param policy what happens to a gesture arriving while the buffer is full
+	 * @param drain where the listener is called
+	 * @throws IllegalArgumentException if the capacity is not positive, or if {@link OverflowPolicy#BLOCK}
+	 * is combined with {@link Drain#EVENT_DISPATCH_THREAD}, which would wait for itself
+	 */
+	public GestureHandoff(final GestureListener target, final int capacity, final OverflowPolicy policy, final Drain drain) {
+		if (target == null) throw new NullPointerException("target");
+		if (capacity <= 0 || capacity > (1 << 30)) throw new IllegalArgumentException("capacity: " + capacity);
+		if (policy == OverflowPolicy.BLOCK && drain == Drain.EVENT_DISPATCH_THREAD)
+			throw new IllegalArgumentException("BLOCK cannot be used when draining on the Event Dispatch thread");
+		this._target = target;
+		this._policy = policy;
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+		this._mask = size - 1;
+		this._types = new byte[size];
+		this._values = new double[size];
+		this._timestamps = new long[size];
+		
+		if (drain == Drain.CONSUMER_THREAD) {
+			this._drainTask = null;
+			this._consumer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					consume();
+				}
+			}, "lib.apple.eawt.event.GestureHandoff");
+			this._consumer.setDaemon(true);
+			this._consumer.start();
+		} else {
+			this._consumer = null;
+			this._drainTask = new Runnable() {
+				@Override
+				public void run() {
+					GestureHandoff.this._drainScheduled.set(false);
+					while (drain() > 0) { }
+				}
+			};
+		}
+	}
+	
+	/**
+	 * @return the listener the gestures are handed to
+	 */
+	public GestureListener getTarget() {
+		return this._target;
+	}
+	
+	/**
+	 * @return the overflow policy of the buffer
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return this._policy;
+	}
+	
+	/**
+	 * @return the number of gestures discarded because the buffer was full
+	 */
+	public long getDroppedCount() {
+		return this._dropped.get();
+	}
+	
+	/**
+	 * @return the number of gestures waiting in the buffer
+	 */
+	public int getPendingCount() {
+		return (int) Math.max(0L, this._tail.get() - this._head.get());
+	}
+	
+	/**
+	 * Stops the consumer thread and releases a blocked producer. Gestures still in the buffer are discarded,
+	 * and gestures arriving afterwards are ignored. The hand-off should also be removed from its component.
+	 */
+	public void close() {
+		this._closed = true;
+		if (this._consumer != null) LockSupport.unpark(this._consumer);
+	}
+	
+	@Override
+	public void gestureBegan(final GesturePhaseEvent e) {
+		offer(GESTURE_BEGAN, 0.0);
+	}
+	
+	@Override
+	public void gestureEnded(final GesturePhaseEvent e) {
+		offer(GESTURE_ENDED, 0.0);
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		offer(MAGNIFY, e.getMagnification());
+	}
+	
+	@Override
+	public void rotate(final RotationEvent e) {
+		offer(ROTATE, e.getRotation());
+	}
+	
+	@Override
+	public void swipedDown(final SwipeEvent e) {
+		offer(SWIPED_DOWN, 0.0);
+	}
+	
+	@Override
+	public void swipedLeft(final SwipeEvent e) {
+		offer(SWIPED_LEFT, 0.0);
+	}
+	
+	@Override
+	public void swipedRight(final SwipeEvent e) {
+		offer(SWIPED_RIGHT, 0.0);
+	}
+	
+	@Override
+	public void swipedUp(final SwipeEvent e) {
+		offer(SWIPED_UP, 0.0);
+	}
+	
+	// Producer side. The tail is only ever advanced here, so it can be read without racing.
+	private void offer(byte type, double value) {
+		if (this._closed) return;
+		long timestamp = System.nanoTime();
+		long tail = this._tail.get();
+		long head = this._head.get();
+		if (tail - head > this._mask) {
+			switch (this._policy) {
+				case DROP_NEWEST:
+					this._dropped.incrementAndGet();
+					return;
+				case DROP_OLDEST:
+					// If the consumer took the oldest one first, there is room anyway
+					if (this._head.compareAndSet(head, head + 1)) this._dropped.incrementAndGet();
+					break;
+				default:
+					while (tail - this._head.get() > this._mask) {
+						if (this._closed) return;
+						LockSupport.parkNanos(BLOCK_PARK_NANOS);
+					}
+					break;
+			}
+		}
+		int slot = (int) (tail & this._mask);
+		this._types[slot] = type;
+		this._values[slot] = value;
+		this._timestamps[slot] = timestamp;
+		this._tail.set(tail + 1);
+		
+		if (this._consumer != null) {
+			if (this._consumerWaiting) LockSupport.unpark(this._consumer);
+		} else if (this._drainScheduled.compareAndSet(false, true)) {
+			EventQueue.invokeLater(this._drainTask);
+		}
+	}
+	
+	// Consumer side. A batch is copied out first and only kept if the producer did not drop
+	// any of it meanwhile, in which case its slots may have been overwritten.
+	private int drain() {
+		int n;
+		for (;;) {
+			if (this._closed) return 0;
+			long head = this._head.get();
+			n = (int) Math.min(this._tail.get() - head, BATCH);
+			if (n <= 0) return 0;
+			for (int i = 0; i < n; i++) {
+				int slot = (int) ((head + i) & this._mask);
+				this._batchTypes[i] = this._types[slot];
+				this._batchValues[i] = this._values[slot];
+				this._batchTimestamps[i] = this._timestamps[slot];
+			}
+			if (this._head.compareAndSet(head, head + n)) break;
+		}
+		for (int i = 0; i < n; i++) {
+			dispatch(this._batchTypes[i], this._batchValues[i], this._batchTimestamps[i]);
+		}
+		return n;
+	}
+	
+	private void consume() {
+		while (!this._closed) {
+			try {
+				if (drain() > 0) continue;
+			} catch (RuntimeException e) {
+				Thread t = Thread.currentThread();
+				t.getUncaughtExceptionHandler().uncaughtException(t, e);
+				continue;
+			}
+			this._consumerWaiting = true;
+			if (this._tail.get() == this._head.get() && !this._closed)
+				LockSupport.park(this);
+			this._consumerWaiting = false;
+		}
+	}
+	
+	private void dispatch(byte type, double value, long timestamp) {
+		GestureListener l = this._target;
+		BufferedGestureEvent e = this._event;
+		switch (type) {
+			case GESTURE_BEGAN:
+			case GESTURE_ENDED:
+				if (l instanceof GesturePhaseListener) {
+					e.set(0.0, 0.0, timestamp);
+					if (type == GESTURE_BEGAN)
+						((GesturePhaseListener) l).gestureBegan(e);
+					else
+						((GesturePhaseListener) l).gestureEnded(e);
+				}
+				break;
+			case MAGNIFY:
+				if (l instanceof MagnificationListener) {
+					e.set(value, 0.0, timestamp);
+					((MagnificationListener) l).magnify(e);
+				}
+				break;
+			case ROTATE:
+				if (l instanceof RotationListener) {
+					e.set(0.0, value, timestamp);
+					((RotationListener) l).rotate(e);
+				}
+				break;
+			default:
+				if (l instanceof SwipeListener) {
+					e.set(0.0, 0.0, timestamp);
+					SwipeListener sl = (SwipeListener) l;
+					if (type == SWIPED_UP) sl.swipedUp(e);
+					else if (type == SWIPED_DOWN) sl.swipedDown(e);
+					else if (type == SWIPED_LEFT) sl.swipedLeft(e);
+					else sl.swipedRight(e);
+				}
+				break;
+		}
+	}
+}
\ No newline at end of file
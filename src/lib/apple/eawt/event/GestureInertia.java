@@ -0,0 +1,239 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gesture listener that tracks the velocity of zoom and rotation, and carries it on as decelerating momentum
+ * once the gesture ends.
+ *
+ * The inertia is registered with {@link GestureUtilities#addGestureListenerTo(javax.swing.JComponent, GestureListener)},
+ * alongside the component's own listeners, and reports to its {@link MomentumListener}s. Velocity is measured over the
+ * last samples of the gesture, kept in primitive arrays. Momentum decays exponentially and is simulated in fixed
+ * steps on a timer shared by all instances, so neither tracking nor simulation allocate. A new gesture or a swipe
+ * stops the momentum. All methods must be called on the AWT Event Dispatch thread.
+ */
+public final class GestureInertia extends GestureAdapter {
+	private static final int WINDOW = 16;
+	private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	
+	// Sliding window of the latest samples, zoom as the logarithm of the scale
+	private final long[] _times = new long[WINDOW];
+	private final double[] _zooms = new double[WINDOW];
+	private final double[] _rotations = new double[WINDOW];
+	private int _next = 0;
+	private int _size = 0;
+	
+	private MomentumListener[] _listeners = new MomentumListener[0];
+	private double _timeConstant = 0.325;
+	private double _minZoomVelocity = 0.02;
+	private double _minRotationVelocity = 2.0;
+	private double _zoomVelocity = 0.0;
+	private double _rotationVelocity = 0.0;
+	private boolean _moving = false;
+	
+	/**
+	 * @param listener to be notified of the momentum steps
+	 */
+	public void addMomentumListener(final MomentumListener listener) {
+		MomentumListener[] listeners = new MomentumListener[this._listeners.length + 1];
+		System.arraycopy(this._listeners, 0, listeners, 0, this._listeners.length);
+		listeners[this._listeners.length] = listener;
+		this._listeners = listeners;
+	}
+	
+	/**
+	 * @param listener to be removed
+	 */
+	public void removeMomentumListener(final MomentumListener listener) {
+		for (int i = 0; i < this._listeners.length; i++) {
+			if (this._listeners[i] == listener) {
+				MomentumListener[] listeners = new MomentumListener[this._listeners.length - 1];
+				System.arraycopy(this._listeners, 0, listeners, 0, i);
+				System.arraycopy(this._listeners, i + 1, listeners, i, listeners.length - i);
+				this._listeners = listeners;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Sets how quickly momentum dies down. After one time constant, about 37% of the velocity is left. The default is 325 ms.
+	 * @param time the time constant of the deceleration
+	 * @param unit the unit of the time
+	 */
+	public void setTimeConstant(final long time, final TimeUnit unit) {
+		if (time <= 0) throw new IllegalArgumentException("time: " + time);
+		this._timeConstant = unit.toNanos(time) / 1e9;
+	}
+	
+	/**
+	 * Sets the velocities below which momentum stops.
+	 * @param zoom the zoom velocity, as the natural logarithm of the scale per second (default 0.02)
+	 * @param rotation the rotation velocity, in degrees per second (default 2)
+	 */
+	public void setStopVelocity(final double zoom, final double rotation) {
+		this._minZoomVelocity = Math.abs(zoom);
+		this._minRotationVelocity = Math.abs(rotation);
+	}
+	
+	/**
+	 * @return the current zoom velocity, as the natural logarithm of the scale per second
+	 */
+	public double getZoomVelocity() {
+		return (this._moving ? this._zoomVelocity : measure(this._zooms, System.nanoTime()));
+	}
+	
+	/**
+	 * @return the current rotation velocity, in degrees per second
+	 */
+	public double getRotationVelocity() {
+		return (this._moving ? this._rotationVelocity : measure(this._rotations, System.nanoTime()));
+	}
+	
+	/**
+	 * @return <code>true</code> while momentum is in progress
+	 */
+	public boolean isMoving() {
+		return this._moving;
+	}
+	
+	/**
+	 * Stops the momentum in progress, if any.
+	 */
+	public void stop() {
+		if (!this._moving) return;
+		this._moving = false;
+		InertiaScheduler.cancel(this);
+		fireEnded();
+	}
+	
+	@Override
+	public void gestureBegan(final GesturePhaseEvent e) {
+		stop();
+		this._size = 0;
+	}
+	
+	@Override
+	public void gestureEnded(final GesturePhaseEvent e) {
+		long now = System.nanoTime();
+		double zoom = measure(this._zooms, now);
+		double rotation = measure(this._rotations, now);
+		this._size = 0;
+		if (Math.abs(zoom) < this._minZoomVelocity) zoom = 0.0;
+		if (Math.abs(rotation) < this._minRotationVelocity) rotation = 0.0;
+		if (zoom == 0.0 && rotation == 0.0) return;
+		this._zoomVelocity = zoom;
+		this._rotationVelocity = rotation;
+		this._moving = true;
+		InertiaScheduler.schedule(this);
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		sample(Math.log1p(e.getMagnification()), 0.0);
+	}
+	
+	@Override
+	public void rotate(final RotationEvent e) {
+		sample(0.0, e.getRotation());
+	}
+	
+	@Override
+	public void swipedDown(final SwipeEvent e) {
+		stop();
+	}
+	
+	@Override
+	public void swipedLeft(final SwipeEvent e) {
+		stop();
+	}
+	
+	@Override
+	public void swipedRight(final SwipeEvent e) {
+		stop();
+	}
+	
+	@Override
+	public void swipedUp(final SwipeEvent e) {
+		stop();
+	}
+	
+	// Advances the momentum by one fixed step; returns false once it has died down.
+	boolean step(double dt) {
+		if (!this._moving) return false;
+		double zoom = this._zoomVelocity * dt;
+		double rotation = this._rotationVelocity * dt;
+		MomentumListener[] listeners = this._listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].momentum(Math.expm1(zoom), rotation);
+		}
+		// A listener that stopped this inertia has already been told it ended
+		if (!this._moving) return false;
+		double decay = Math.exp(-dt / this._timeConstant);
+		this._zoomVelocity *= decay;
+		this._rotationVelocity *= decay;
+		if (Math.abs(this._zoomVelocity) < this._minZoomVelocity) this._zoomVelocity = 0.0;
+		if (Math.abs(this._rotationVelocity) < this._minRotationVelocity) this._rotationVelocity = 0.0;
+		if (this._zoomVelocity == 0.0 && this._rotationVelocity == 0.0) {
+			this._moving = false;
+			fireEnded();
+			return false;
+		}
+		return true;
+	}
+	
+	private void sample(double zoom, double rotation) {
+		if (this._moving) stop(); // Touching the trackpad again catches the content
+		this._times[this._next] = System.nanoTime();
+		this._zooms[this._next] = zoom;
+		this._rotations[this._next] = rotation;
+		this._next = (this._next + 1) % WINDOW;
+		if (this._size < WINDOW) this._size++;
+	}
+	
+	// Velocity per second over the samples of the last WINDOW_NANOS. The change of the oldest
+	// sample happened before its time stamp, so it is not counted.
+	private double measure(double[] values, long now) {
+		int newest = (this._next + WINDOW - 1) % WINDOW;
+		if (this._size < 2 || now - this._times[newest] > WINDOW_NANOS / 2) return 0.0;
+		double sum = 0.0;
+		int oldest = newest;
+		for (int n = 1, i = newest; n < this._size; n++) {
+			int prev = (i + WINDOW - 1) % WINDOW;
+			if (now - this._times[prev] > WINDOW_NANOS) break;
+			sum += values[i];
+			oldest = prev;
+			i = prev;
+		}
+		long span = this._times[newest] - this._times[oldest];
+		return (span > 0 ? sum * 1e9 / span : 0.0);
+	}
+	
+	private void fireEnded() {
+		MomentumListener[] listeners = this._listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].momentumEnded();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,414 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.Component;
+import java.awt.HeadlessException;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
+import java.awt.event.HierarchyBoundsListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Routes the gestures performed over a top-level component to the {@link GestureListener}s of its descendants,
+ * using a single native registration.
+ *
+ * Attaching listeners to many small components with {@link GestureUtilities#addGestureListenerTo(JComponent, GestureListener)}
+ * creates a native registration for each of them. A router instead attaches one listener to the root, usually the
+ * {@link javax.swing.JRootPane} of a window, and keeps the bounds of the components registered with it in a grid of
+ * fixed-size cells. Each gesture is delivered to the deepest component under the pointer that has a listener for it; a
+ * continuous gesture stays with the components found when it began. The grid is updated one component at a time as
+ * components are moved, resized or reparented, so registering and routing cost about the same however many components
+ * are listening.
+ *
+ * A router must only be used on the AWT Event Dispatch thread.
+ */
+public final class GestureRouter {
+	private static final GestureListener[] NO_LISTENERS = new GestureListener[0];
+	private static final Entry[] NO_ENTRIES = new Entry[0];
+	
+	private final JComponent _root;
+	private final int _cellSize;
+	private final Bridge _bridge = new Bridge();
+	private final Map<JComponent, Entry> _entries = new HashMap<>();
+	private final Map<Long, List<Entry>> _cells = new HashMap<>();
+	private Entry[] _hits = new Entry[8];
+	private Entry[] _gesture = NO_ENTRIES;
+	private boolean _inGesture = false;
+	private boolean _disposed = false;
+	
+	/**
+	 * Creates a router with 64 pixel cells and attaches it to the root.
+	 * @param root the component whose descendants receive the gestures
+	 */
+	public GestureRouter(final JComponent root) {
+		this(root, 64);
+	}
+	
+	/**
+	 * Creates a router and attaches it to the root.
+	 * @param root the component whose descendants receive the gestures
+	 * @param cellSize the width and height of a grid cell, in pixels
+	 */
+	public GestureRouter(final JComponent root, final int cellSize) {
+		if (root == null) throw new NullPointerException("root");
+		if (cellSize <= 0) throw new IllegalArgumentException("cellSize: " + cellSize);
+		this._root = root;
+		this._cellSize = cellSize;
+		GestureUtilities.addGestureListenerTo(root, this._bridge);
+	}
+	
+	/**
+	 * @return the component the router is attached to
+	 */
+	public JComponent getRoot() {
+		return this._root;
+	}
+	
+	/**
+	 * Routes the gestures over a component to a listener. The component should be a descendant of the root, or the root itself;
+	 * while it is not, it receives no gestures.
+	 * @param component to route the gestures to
+	 * @param listener to be notified when a gesture occurs over the component
+	 */
+	public void addGestureListenerTo(final JComponent component, final GestureListener listener) {
+		if (this._disposed) throw new IllegalStateException("disposed");
+		if (component == null || listener == null) return;
+		Entry entry = this._entries.get(component);
+		if (entry == null) {
+			entry = new Entry(this, component);
+			this._entries.put(component, entry);
+			component.addComponentListener(entry);
+			component.addHierarchyListener(entry);
+			component.addHierarchyBoundsListener(entry);
+			index(entry);
+		}
+		GestureListener[] listeners = Arrays.copyOf(entry._listeners, entry._listeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+		entry._listeners = listeners;
+	}
+	
+	/**
+	 * Stops routing gestures to a listener.
+	 * @param component to remove the listener from
+	 * @param listener to be removed
+	 */
+	public void removeGestureListenerFrom(final JComponent component, final GestureListener listener) {
+		Entry entry = this._entries.get(component);
+		if (entry == null) return;
+		GestureListener[] listeners = entry._listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				GestureListener[] next = new GestureListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, next, 0, i);
+				System.arraycopy(listeners, i + 1, next, i, next.length - i);
+				entry._listeners = next;
+				break;
+			}
+		}
+		if (entry._listeners.length == 0) {
+			release(entry);
+			this._entries.remove(component);
+		}
+	}
+	
+	/**
+	 * Returns the deepest component which would receive a gesture at a point.
+	 * @param x the x coordinate in the coordinate space of the root
+	 * @param y the y coordinate in the coordinate space of the root
+	 * @return the component, or <code>null</code> if no registered component is there
+	 */
+	public JComponent getTargetAt(final int x, final int y) {
+		int n = hitTest(x, y);
+		return (n > 0 ? this._hits[0]._component : null);
+	}
+	
+	/**
+	 * @return the number of components gestures are routed to
+	 */
+	public int getComponentCount() {
+		return this._entries.size();
+	}
+	
+	/**
+	 * Detaches the router from the root and from all registered components.
+	 */
+	public void dispose() {
+		if (this._disposed) return;
+		this._disposed = true;
+		GestureUtilities.removeGestureListenerFrom(this._root, this._bridge);
+		for (Entry entry : this._entries.values()) {
+			release(entry);
+		}
+		this._entries.clear();
+		this._cells.clear();
+		this._gesture = NO_ENTRIES;
+	}
+	
+	private void release(Entry entry) {
+		entry._component.removeComponentListener(entry);
+		entry._component.removeHierarchyListener(entry);
+		entry._component.removeHierarchyBoundsListener(entry);
+		unindex(entry);
+		entry._listeners = NO_LISTENERS;
+	}
+	
+	// Moves the entry to the cells covered by the component's current bounds.
+	private void index(Entry entry) {
+		JComponent c = entry._component;
+		int depth = depthOf(c);
+		if (depth < 0 || c.getWidth() <= 0 || c.getHeight() <= 0) {
+			unindex(entry);
+			return;
+		}
+		Rectangle r = (c == this._root ? new Rectangle(0, 0, c.getWidth(), c.getHeight())
+			: SwingUtilities.convertRectangle(c.getParent(), c.getBounds(), this._root));
+		entry._depth = depth;
+		entry._bounds.setBounds(r);
+		int x0 = floorDiv(r.x, this._cellSize), y0 = floorDiv(r.y, this._cellSize);
+		int x1 = floorDiv(r.x + r.width - 1, this._cellSize), y1 = floorDiv(r.y + r.height - 1, this._cellSize);
+		if (entry._indexed && x0 == entry._x0 && y0 == entry._y0 && x1 == entry._x1 && y1 == entry._y1) return;
+		unindex(entry);
+		for (int cy = y0; cy <= y1; cy++) {
+			for (int cx = x0; cx <= x1; cx++) {
+				Long key = Long.valueOf(key(cx, cy));
+				List<Entry> cell = this._cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<>(4);
+					this._cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+		entry._x0 = x0;
+		entry._y0 = y0;
+		entry._x1 = x1;
+		entry._y1 = y1;
+		entry._indexed = true;
+	}
+	
+	private void unindex(Entry entry) {
+		if (!entry._indexed) return;
+		for (int cy = entry._y0; cy <= entry._y1; cy++) {
+			for (int cx = entry._x0; cx <= entry._x1; cx++) {
+				Long key = Long.valueOf(key(cx, cy));
+				List<Entry> cell = this._cells.get(key);
+				if (cell == null) continue;
+				for (int i = cell.size() - 1; i >= 0; i--) {
+					if (cell.get(i) == entry) cell.remove(i);
+				}
+				if (cell.isEmpty()) this._cells.remove(key);
+			}
+		}
+		entry._indexed = false;
+	}
+	
+	// Number of ancestors between the component and the root, or -1 if it is not inside the root.
+	private int depthOf(Component c) {
+		int depth = 0;
+		for (Component p = c; p != null; p = p.getParent()) {
+			if (p == this._root) return depth;
+			depth++;
+		}
+		return -1;
+	}
+	
+	private static int floorDiv(int a, int b) {
+		int q = a / b;
+		return ((a % b) < 0 ? q - 1 : q);
+	}
+	
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+	
+	// Fills _hits with the showing components containing the point, deepest first, and returns their number.
+	private int hitTest(int x, int y) {
+		List<Entry> cell = this._cells.get(Long.valueOf(key(floorDiv(x, this._cellSize), floorDiv(y, this._cellSize))));
+		if (cell == null) return 0;
+		int n = 0;
+		for (int i = 0, size = cell.size(); i < size; i++) {
+			Entry entry = cell.get(i);
+			if (!entry._bounds.contains(x, y) || !entry._component.isShowing()) continue;
+			if (n == this._hits.length) this._hits = Arrays.copyOf(this._hits, n * 2);
+			int j = n++;
+			while (j > 0 && this._hits[j - 1]._depth < entry._depth) {
+				this._hits[j] = this._hits[j - 1];
+				j--;
+			}
+			this._hits[j] = entry;
+		}
+		return n;
+	}
+	
+	// The components under the pointer, deepest first.
+	private Entry[] targets() {
+		Point p;
+		try {
+			p = this._root.getMousePosition(true);
+		} catch (HeadlessException e) {
+			p = null;
+		}
+		if (p == null) return NO_ENTRIES;
+		int n = hitTest(p.x, p.y);
+		return (n == 0 ? NO_ENTRIES : Arrays.copyOf(this._hits, n));
+	}
+	
+	// The listeners of the deepest of the targets having at least one listener of the given type.
+	private static GestureListener[] interested(Entry[] targets, Class<? extends GestureListener> type) {
+		for (Entry entry : targets) {
+			for (GestureListener l : entry._listeners) {
+				if (type.isInstance(l)) return entry._listeners;
+			}
+		}
+		return NO_LISTENERS;
+	}
+	
+	private Entry[] current() {
+		return (this._inGesture ? this._gesture : targets());
+	}
+	
+	private static final class Entry implements ComponentListener, HierarchyListener, HierarchyBoundsListener {
+		final JComponent _component;
+		final Rectangle _bounds = new Rectangle();
+		final GestureRouter _router;
+		GestureListener[] _listeners = NO_LISTENERS;
+		int _depth = 0;
+		boolean _indexed = false;
+		int _x0, _y0, _x1, _y1;
+		
+		Entry(GestureRouter router, JComponent component) {
+			this._router = router;
+			this._component = component;
+		}
+		
+		private void changed() {
+			if (this._listeners.length > 0) this._router.index(this);
+		}
+		
+		@Override
+		public void componentResized(ComponentEvent e) {
+			changed();
+		}
+		
+		@Override
+		public void componentMoved(ComponentEvent e) {
+			changed();
+		}
+		
+		@Override
+		public void componentShown(ComponentEvent e) {
+			changed();
+		}
+		
+		@Override
+		public void componentHidden(ComponentEvent e) { }
+		
+		@Override
+		public void hierarchyChanged(HierarchyEvent e) {
+			if ((e.getChangeFlags() & HierarchyEvent.PARENT_CHANGED) != 0) changed();
+		}
+		
+		@Override
+		public void ancestorMoved(HierarchyEvent e) {
+			changed();
+		}
+		
+		@Override
+		public void ancestorResized(HierarchyEvent e) { }
+	}
+	
+	// The single listener attached to the root.
+	private final class Bridge extends GestureAdapter {
+		@Override
+		public void gestureBegan(final GesturePhaseEvent e) {
+			GestureRouter.this._gesture = targets();
+			GestureRouter.this._inGesture = true;
+			for (GestureListener l : interested(GestureRouter.this._gesture, GesturePhaseListener.class)) {
+				if (l instanceof GesturePhaseListener) ((GesturePhaseListener) l).gestureBegan(e);
+			}
+		}
+		
+		@Override
+		public void gestureEnded(final GesturePhaseEvent e) {
+			Entry[] targets = current();
+			GestureRouter.this._gesture = NO_ENTRIES;
+			GestureRouter.this._inGesture = false;
+			for (GestureListener l : interested(targets, GesturePhaseListener.class)) {
+				if (l instanceof GesturePhaseListener) ((GesturePhaseListener) l).gestureEnded(e);
+			}
+		}
+		
+		@Override
+		public void magnify(final MagnificationEvent e) {
+			for (GestureListener l : interested(current(), MagnificationListener.class)) {
+				if (l instanceof MagnificationListener) ((MagnificationListener) l).magnify(e);
+			}
+		}
+		
+		@Override
+		public void rotate(final RotationEvent e) {
+			for (GestureListener l : interested(current(), RotationListener.class)) {
+				if (l instanceof RotationListener) ((RotationListener) l).rotate(e);
+			}
+		}
+		
+		@Override
+		public void swipedDown(final SwipeEvent e) {
+			for (GestureListener l : interested(targets(), SwipeListener.class)) {
+				if (l instanceof SwipeListener) ((SwipeListener) l).swipedDown(e);
+			}
+		}
+		
+		@Override
+		public void swipedLeft(final SwipeEvent e) {
+			for (GestureListener l : interested(targets(), SwipeListener.class)) {
+				if (l instanceof SwipeListener) ((SwipeListener) l).swipedLeft(e);
+			}
+		}
+		
+		@Override
+		public void swipedRight(final SwipeEvent e) {
+			for (GestureListener l : interested(targets(), SwipeListener.class)) {
+				if (l instanceof SwipeListener) ((SwipeListener) l).swipedRight(e);
+			}
+		}
+		
+		@Override
+		public void swipedUp(final SwipeEvent e) {
+			for (GestureListener l : interested(targets(), SwipeListener.class)) {
+				if (l instanceof SwipeListener) ((SwipeListener) l).swipedUp(e);
+			}
+		}
+	}
+}
\ No newline at end of file
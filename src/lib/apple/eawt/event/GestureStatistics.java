@@ -0,0 +1,214 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+/**
+ * Gesture load of a single component, and the sampling applied to it.
+ *
+ * {@link GestureUtilities} keeps one instance for each component it attaches listeners to. The rates count each native
+ * event once, however many listeners the component has. When a target rate is set with
+ * {@link GestureUtilities#setTargetRate(javax.swing.JComponent, double)}, magnification and rotation events arriving
+ * faster than it are not delivered; their values are added to the next event delivered, so that no part of the
+ * gesture is lost. The interval between two deliveries is also stretched so that the listeners take up at most half
+ * of the time, based on how long they have taken so far. Phase and swipe events are always delivered.
+ *
+ * The values may be read from any thread, and are updated on the AWT Event Dispatch thread.
+ */
+public final class GestureStatistics {
+	private static final double TIME_CONSTANT = 1e9;
+	private static final double SMOOTHING = 0.2;
+	private static final double MAX_LOAD = 0.5;
+	
+	private volatile double _targetRate = 0.0;
+	private volatile double _eventRate = 0.0;
+	private volatile double _deliveryRate = 0.0;
+	private volatile long _eventTime = System.nanoTime();
+	private volatile long _deliveryTime = System.nanoTime();
+	private volatile double _handlerTime = 0.0;
+	private volatile long _received = 0L;
+	private volatile long _delivered = 0L;
+	private volatile long _aggregated = 0L;
+	
+	// Weak, so that the native event is not kept once it has been dispatched
+	private WeakReference<Object> _lastEvent = null;
+	private boolean _lastAdmitted = false;
+	private long _pendingHandlerTime = 0L;
+	private long _next = 0L;
+	private final List<GestureUtilities.GestureInvocationHandler<?, ?>> _pending = new ArrayList<>();
+	private Timer _timer = null;
+	
+	GestureStatistics() { }
+	
+	/**
+	 * @return the rate delivery is limited to, in events per second, or 0 if all events are delivered
+	 */
+	public double getTargetRate() {
+		return this._targetRate;
+	}
+	
+	void setTargetRate(double rate) {
+		this._targetRate = Math.max(0.0, rate);
+	}
+	
+	/**
+	 * @return the recent rate of native events, in events per second
+	 */
+	public double getEventRate() {
+		return decay(this._eventRate, System.nanoTime() - this._eventTime);
+	}
+	
+	/**
+	 * @return the recent rate of events delivered to the listeners, in events per second
+	 */
+	public double getDeliveryRate() {
+		return decay(this._deliveryRate, System.nanoTime() - this._deliveryTime);
+	}
+	
+	/**
+	 * @return the average time the listeners take to handle a delivered event, in nanoseconds
+	 */
+	public long getHandlerTime() {
+		return (long) this._handlerTime;
+	}
+	
+	/**
+	 * @return the current minimum time between two delivered magnification or rotation events, in nanoseconds,
+	 * or 0 if they are not sampled
+	 */
+	public long getSamplingInterval() {
+		double target = this._targetRate;
+		if (target <= 0.0) return 0L;
+		return (long) Math.max(1e9 / target, this._handlerTime / MAX_LOAD);
+	}
+	
+	/**
+	 * @return the number of native events received
+	 */
+	public long getReceivedCount() {
+		return this._received;
+	}
+	
+	/**
+	 * @return the number of events delivered to the listeners, including combined ones
+	 */
+	public long getDeliveredCount() {
+		return this._delivered;
+	}
+	
+	/**
+	 * @return the number of native events which were not delivered on their own, but added to a later one
+	 */
+	public long getAggregatedCount() {
+		return this._aggregated;
+	}
+	
+	// Decides once per native event whether it is delivered; the listeners of the component share the decision.
+	boolean admit(Object event, boolean sampled) {
+		if (this._lastEvent != null && this._lastEvent.get() == event) return this._lastAdmitted;
+		long now = System.nanoTime();
+		foldHandlerTime();
+		this._lastEvent = new WeakReference<>(event);
+		this._received++;
+		this._eventRate = decay(this._eventRate, now - this._eventTime) + 1.0;
+		this._eventTime = now;
+		boolean admitted = (!sampled || this._targetRate <= 0.0 || now - this._next >= 0L);
+		if (admitted) {
+			delivered(now);
+		} else {
+			this._aggregated++;
+		}
+		this._lastAdmitted = admitted;
+		return admitted;
+	}
+	
+	void handled(long nanos) {
+		this._pendingHandlerTime += nanos;
+	}
+	
+	// Schedules the delivery of the values a handler has put aside.
+	void pending(GestureUtilities.GestureInvocationHandler<?, ?> handler) {
+		for (int i = 0; i < this._pending.size(); i++) {
+			if (this._pending.get(i) == handler) return;
+		}
+		this._pending.add(handler);
+		if (this._timer == null) {
+			this._timer = new Timer(0, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					flush();
+				}
+			});
+			this._timer.setRepeats(false);
+		}
+		if (!this._timer.isRunning()) {
+			this._timer.setInitialDelay((int) Math.max(1L, (this._next - System.nanoTime()) / 1000000L));
+			this._timer.start();
+		}
+	}
+	
+	// Delivers the values put aside, before a phase or swipe event or once the sampling interval has passed.
+	void flush() {
+		if (this._pending.isEmpty()) return;
+		if (this._timer != null) this._timer.stop();
+		GestureUtilities.GestureInvocationHandler<?, ?>[] pending = this._pending.toArray(new GestureUtilities.GestureInvocationHandler<?, ?>[this._pending.size()]);
+		this._pending.clear();
+		foldHandlerTime();
+		delivered(System.nanoTime());
+		for (GestureUtilities.GestureInvocationHandler<?, ?> handler : pending) {
+			handler.flush();
+		}
+	}
+	
+	private void delivered(long now) {
+		this._delivered++;
+		this._deliveryRate = decay(this._deliveryRate, now - this._deliveryTime) + 1.0;
+		this._deliveryTime = now;
+		this._next = now + getSamplingInterval();
+	}
+	
+	private void foldHandlerTime() {
+		long time = this._pendingHandlerTime;
+		if (time == 0L) return;
+		this._pendingHandlerTime = 0L;
+		double avg = this._handlerTime;
+		this._handlerTime = (avg == 0.0 ? time : avg + SMOOTHING * (time - avg));
+	}
+	
+	// Exponentially decaying count, which converges on the rate per second.
+	private static double decay(double rate, long elapsed) {
+		return rate * Math.exp(-elapsed / TIME_CONSTANT);
+	}
+	
+	@Override
+	public String toString() {
+		return "GestureStatistics[eventRate=" + getEventRate() + ", deliveryRate=" + getDeliveryRate() + ", handlerTime="
+			+ getHandlerTime() + "ns, samplingInterval=" + getSamplingInterval() + "ns]";
+	}
+}
\ No newline at end of file
@@ -21,6 +21,9 @@
 
 package lib.apple.eawt.event;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -28,17 +31,25 @@ import java.lang.reflect.Proxy;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import javax.swing.JComponent;
 
+import lib.apple.monitor.EventTraceRecorder;
+import lib.apple.monitor.EventType;
+import lib.apple.monitor.HandlerAccounting;
+import lib.apple.monitor.Metrics;
+import lib.apple.monitor.StartupTrace;
+
 /**
  * Registration utility class to add {@link GestureListener}s to Swing components.
  *
@@ -56,10 +67,21 @@ import javax.swing.JComponent;
  * @since Java for Mac OS X 10.5 Update 7, Java for Mac OS X 10.6 Update 2
  */
 public final class GestureUtilities {
-	private static final ConcurrentMap<GesturePhaseListener, Object> PHASE_MAP = new ConcurrentHashMap<>();
-	private static final ConcurrentMap<MagnificationListener, Object> MAGNIFICATION_MAP = new ConcurrentHashMap<>();
-	private static final ConcurrentMap<RotationListener, Object> ROTATION_MAP = new ConcurrentHashMap<>();
-	private static final ConcurrentMap<SwipeListener, Object> SWIPE_MAP = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ListenerKey, Object> PHASE_MAP = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ListenerKey, Object> MAGNIFICATION_MAP = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ListenerKey, Object> ROTATION_MAP = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ListenerKey, Object> SWIPE_MAP = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ListenerKey, Object> PRIMITIVE_MAP = new ConcurrentHashMap<>();
+	private static final Map<JComponent, GestureStatistics> STATISTICS = Collections.synchronizedMap(new WeakHashMap<JComponent, GestureStatistics>());
+	
+	static {
+		Metrics.registerRegistry("GestureUtilities", "gesturePhaseListeners", PHASE_MAP);
+		Metrics.registerRegistry("GestureUtilities", "magnificationListeners", MAGNIFICATION_MAP);
+		Metrics.registerRegistry("GestureUtilities", "rotationListeners", ROTATION_MAP);
+		Metrics.registerRegistry("GestureUtilities", "swipeListeners", SWIPE_MAP);
+		Metrics.registerRegistry("GestureUtilities", "primitiveGestureListeners", PRIMITIVE_MAP);
+		Metrics.registerRegistry("GestureUtilities", "gestureStatistics", STATISTICS);
+	}
 	
 	private static Class<?> _gestureListenerClass = null;
 	private static Class<?> _gesturePhaseListenerClass = null;
@@ -68,33 +90,48 @@ public final class GestureUtilities {
 	private static Class<?> _swipeListenerClass = null;
 	private static Method _addGestureListenerTo = null;
 	private static Method _removeGestureListenerFrom = null;
+	private static MethodHandle _getMagnification = null;
+	private static MethodHandle _getRotation = null;
 	private static ClassLoader loader = null;
 	
 	static {
+		long init = StartupTrace.initializing();
 		try {
+			boolean standIn = Boolean.getBoolean("lib.apple.replay.standIn");
 			Path java = Paths.get("/System/Library/Java");
-			if (Files.exists(java, LinkOption.NOFOLLOW_LINKS)) {
+			if (!standIn && StartupTrace.exists(GestureUtilities.class, java)) {
 				ClassLoader sys_loader = ClassLoader.getSystemClassLoader();
 				if (URLClassLoader.class.isAssignableFrom(sys_loader.getClass())) {
 					Method addUrl = URLClassLoader.class.getDeclaredMethod("addURL", URL.class);
 					doPrivileged(addUrl);
-					addUrl.invoke(sys_loader, java.toUri().toURL());
+					StartupTrace.addURL(GestureUtilities.class, addUrl, sys_loader, java.toUri().toURL());
 				}
 			}
 			
-			Class<?> utilClass = Class.forName("com.apple.eawt.event.GestureUtilities");
+			String eawt = (standIn ? "lib.apple.eawt.event." : "com.apple.eawt.event.");
+			Class<?> utilClass = StartupTrace.forName(GestureUtilities.class, standIn ? "lib.apple.replay.StandInGestureUtilities" : "com.apple.eawt.event.GestureUtilities");
 			loader = utilClass.getClassLoader();
-			_gestureListenerClass = Class.forName("com.apple.eawt.event.GestureListener");
-			_gesturePhaseListenerClass = Class.forName("com.apple.eawt.event.GesturePhaseListener");
-			_magnificationListenerClass = Class.forName("com.apple.eawt.event.MagnificationListener");
-			_rotationListenerClass = Class.forName("com.apple.eawt.event.RotationListener");
-			_swipeListenerClass = Class.forName("com.apple.eawt.event.SwipeListener");
-			_addGestureListenerTo = utilClass.getMethod("addGestureListenerTo", JComponent.class, _gestureListenerClass);
-			_removeGestureListenerFrom = utilClass.getMethod("removeGestureListenerFrom", JComponent.class, _gestureListenerClass);
+			_gestureListenerClass = StartupTrace.forName(GestureUtilities.class, eawt + "GestureListener");
+			_gesturePhaseListenerClass = StartupTrace.forName(GestureUtilities.class, eawt + "GesturePhaseListener");
+			_magnificationListenerClass = StartupTrace.forName(GestureUtilities.class, eawt + "MagnificationListener");
+			_rotationListenerClass = StartupTrace.forName(GestureUtilities.class, eawt + "RotationListener");
+			_swipeListenerClass = StartupTrace.forName(GestureUtilities.class, eawt + "SwipeListener");
+			_addGestureListenerTo = StartupTrace.getMethod(GestureUtilities.class, utilClass, "addGestureListenerTo", JComponent.class, _gestureListenerClass);
+			_removeGestureListenerFrom = StartupTrace.getMethod(GestureUtilities.class, utilClass, "removeGestureListenerFrom", JComponent.class, _gestureListenerClass);
+			
+			// Typed (Object)double so that invokeExact returns the native value unboxed
+			MethodType getter = MethodType.methodType(Double.TYPE);
+			MethodType erased = MethodType.methodType(Double.TYPE, Object.class);
+			_getMagnification = MethodHandles.publicLookup().findVirtual(
+				StartupTrace.forName(GestureUtilities.class, eawt + "MagnificationEvent"), "getMagnification", getter).asType(erased);
+			_getRotation = MethodHandles.publicLookup().findVirtual(
+				StartupTrace.forName(GestureUtilities.class, eawt + "RotationEvent"), "getRotation", getter).asType(erased);
 		} catch (ClassNotFoundException e) {
 		} catch (IllegalAccessException | NoSuchMethodException
 		| InvocationTargetException | MalformedURLException e) {
 			throw new RuntimeException(e);
+		} finally {
+			StartupTrace.initialized(GestureUtilities.class, init);
 		}
 	}
 	
@@ -110,82 +147,32 @@ public final class GestureUtilities {
 	 */
 	public static void addGestureListenerTo(final JComponent component, final GestureListener listener) {
 		if (_addGestureListenerTo != null) {
-			Object handler = null;
+			// One bridge per interface the listener implements and per component, each registered on its own
+			GestureStatistics stats = statisticsFor(component);
+			ListenerKey key = new ListenerKey(component, listener);
 			if (listener instanceof GesturePhaseListener) {
 				GesturePhaseListener gpl = (GesturePhaseListener) listener;
-				try {
-					handler = PHASE_MAP.get(gpl);
-					if (handler == null) {
-						Class<?> proxy = Proxy.getProxyClass(loader, _gesturePhaseListenerClass);
-						handler = proxy.getConstructor(InvocationHandler.class)
-							.newInstance(new GestureInvocationHandler<GesturePhaseListener, GesturePhaseEvent>(gpl, GesturePhaseEvent.class));
-						Object prev = PHASE_MAP.putIfAbsent(gpl, handler);
-						if (prev != null) {
-							handler = null;
-						}
-					}
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-					throw new RuntimeException(e);
-				}
+				if (!PHASE_MAP.containsKey(key))
+					register(component, PHASE_MAP, key, _gesturePhaseListenerClass,
+						new GestureInvocationHandler<GesturePhaseListener, GesturePhaseEvent>(gpl, GesturePhaseEvent.class, stats));
 			}
 			if (listener instanceof MagnificationListener) {
 				MagnificationListener ml = (MagnificationListener) listener;
-				try {
-					handler = MAGNIFICATION_MAP.get(ml);
-					if (handler == null) {
-						Class<?> proxy = Proxy.getProxyClass(loader, _magnificationListenerClass);
-						handler = proxy.getConstructor(InvocationHandler.class)
-							.newInstance(new GestureInvocationHandler<MagnificationListener, MagnificationEvent>(ml, MagnificationEvent.class));
-						Object prev = MAGNIFICATION_MAP.putIfAbsent(ml, handler);
-						if (prev != null) {
-							handler = null;
-						}
-					}
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-					throw new RuntimeException(e);
-				}
+				if (!MAGNIFICATION_MAP.containsKey(key))
+					register(component, MAGNIFICATION_MAP, key, _magnificationListenerClass,
+						new GestureInvocationHandler<MagnificationListener, MagnificationEvent>(ml, MagnificationEvent.class, stats));
 			}
 			if (listener instanceof RotationListener) {
 				RotationListener rl = (RotationListener) listener;
-				try {
-					handler = ROTATION_MAP.get(rl);
-					if (handler == null) {
-						Class<?> proxy = Proxy.getProxyClass(loader, _rotationListenerClass);
-						handler = proxy.getConstructor(InvocationHandler.class)
-							.newInstance(new GestureInvocationHandler<RotationListener, RotationEvent>(rl, RotationEvent.class));
-						Object prev = ROTATION_MAP.putIfAbsent(rl, handler);
-						if (prev != null) {
-							handler = null;
-						}
-					}
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-					throw new RuntimeException(e);
-				}
+				if (!ROTATION_MAP.containsKey(key))
+					register(component, ROTATION_MAP, key, _rotationListenerClass,
+						new GestureInvocationHandler<RotationListener, RotationEvent>(rl, RotationEvent.class, stats));
 			}
 			if (listener instanceof SwipeListener) {
 				SwipeListener sl = (SwipeListener) listener;
-				try {
-					handler = SWIPE_MAP.get(sl);
-					if (handler == null) {
-						Class<?> proxy = Proxy.getProxyClass(loader, _swipeListenerClass);
-						handler = proxy.getConstructor(InvocationHandler.class)
-							.newInstance(new GestureInvocationHandler<SwipeListener, SwipeEvent>(sl, SwipeEvent.class));
-						Object prev = SWIPE_MAP.putIfAbsent(sl, handler);
-						if (prev != null) {
-							handler = null;
-						}
-					}
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| NoSuchMethodException | SecurityException e) {
-					throw new RuntimeException(e);
-				}
-			}
-			
-			if (handler != null) {
-				call(_addGestureListenerTo, component, handler);
+				if (!SWIPE_MAP.containsKey(key))
+					register(component, SWIPE_MAP, key, _swipeListenerClass,
+						new GestureInvocationHandler<SwipeListener, SwipeEvent>(sl, SwipeEvent.class, stats));
 			}
 		}
 	}
@@ -197,25 +184,127 @@ public final class GestureUtilities {
 	 */
 	public static void removeGestureListenerFrom(final JComponent component, final GestureListener listener) {
 		if (_removeGestureListenerFrom != null) {
-			Object handler = null;
+			ListenerKey key = new ListenerKey(component, listener);
 			if (listener instanceof GesturePhaseListener) {
-				handler = PHASE_MAP.remove((GesturePhaseListener) listener);
+				unregister(component, PHASE_MAP.remove(key));
 			}
 			if (listener instanceof MagnificationListener) {
-				handler = MAGNIFICATION_MAP.remove((MagnificationListener) listener);
+				unregister(component, MAGNIFICATION_MAP.remove(key));
 			}
 			if (listener instanceof RotationListener) {
-				handler = ROTATION_MAP.remove((RotationListener) listener);
+				unregister(component, ROTATION_MAP.remove(key));
 			}
 			if (listener instanceof SwipeListener) {
-				handler = SWIPE_MAP.remove((SwipeListener) listener);
+				unregister(component, SWIPE_MAP.remove(key));
+			}
+		}
+	}
+	
+	/**
+	 * Attaches a {@link PrimitiveGestureListener} to the specified {@link JComponent}.
+	 * @param component to attach the {@link PrimitiveGestureListener} to
+	 * @param listener to be passed the values of the gestures that occur
+	 */
+	public static void addPrimitiveGestureListenerTo(final JComponent component, final PrimitiveGestureListener listener) {
+		if (_addGestureListenerTo != null && listener != null) {
+			ListenerKey key = new ListenerKey(component, listener);
+			Object handler = null;
+			try {
+				handler = PRIMITIVE_MAP.get(key);
+				if (handler == null) {
+					Class<?> proxy = Proxy.getProxyClass(loader, _gesturePhaseListenerClass, _magnificationListenerClass,
+						_rotationListenerClass, _swipeListenerClass);
+					handler = proxy.getConstructor(InvocationHandler.class)
+						.newInstance(new PrimitiveInvocationHandler(listener));
+					Object prev = PRIMITIVE_MAP.putIfAbsent(key, handler);
+					if (prev != null) {
+						handler = null;
+					}
+				}
+			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
+			| NoSuchMethodException | SecurityException e) {
+				throw new RuntimeException(e);
 			}
 			
+			if (handler != null) {
+				call(_addGestureListenerTo, component, handler);
+			}
+		}
+	}
+	
+	/**
+	 * Removes a {@link PrimitiveGestureListener} from the specified {@link JComponent}
+	 * @param component to remove the {@link PrimitiveGestureListener} from
+	 * @param listener to be removed
+	 */
+	public static void removePrimitiveGestureListenerFrom(final JComponent component, final PrimitiveGestureListener listener) {
+		if (_removeGestureListenerFrom != null && listener != null) {
+			Object handler = PRIMITIVE_MAP.remove(new ListenerKey(component, listener));
 			if (handler != null)
 				call(_removeGestureListenerFrom, component, handler);
 		}
 	}
 	
+	/**
+	 * Limits the rate at which magnification and rotation events are delivered to the listeners of a component.
+	 * Events arriving faster are added to the next one delivered, and the rate is lowered further if the listeners
+	 * take too long to handle them.
+	 * @param component whose listeners to limit
+	 * @param eventsPerSecond the most events delivered per second, or 0 to deliver all of them
+	 * @see GestureStatistics
+	 */
+	public static void setTargetRate(final JComponent component, final double eventsPerSecond) {
+		statisticsFor(component).setTargetRate(eventsPerSecond);
+	}
+	
+	/**
+	 * @param component the component to query
+	 * @return the gesture statistics of the component, or <code>null</code> if no listener was ever attached to it
+	 */
+	public static GestureStatistics getStatistics(final JComponent component) {
+		return STATISTICS.get(component);
+	}
+	
+	/**
+	 * @return a snapshot of the gesture statistics of all components with listeners attached
+	 */
+	public static Map<JComponent, GestureStatistics> getStatistics() {
+		synchronized (STATISTICS) {
+			return new HashMap<>(STATISTICS);
+		}
+	}
+	
+	private static GestureStatistics statisticsFor(JComponent component) {
+		synchronized (STATISTICS) {
+			GestureStatistics stats = STATISTICS.get(component);
+			if (stats == null) {
+				stats = new GestureStatistics();
+				STATISTICS.put(component, stats);
+			}
+			return stats;
+		}
+	}
+	
+	// Creates the native bridge of one listener interface, and registers it unless another thread got there first.
+	private static void register(JComponent component, ConcurrentMap<ListenerKey, Object> map, ListenerKey key, Class<?> bridgeClass, InvocationHandler invocationHandler) {
+		Object handler;
+		try {
+			Class<?> proxy = Proxy.getProxyClass(loader, bridgeClass);
+			handler = proxy.getConstructor(InvocationHandler.class).newInstance(invocationHandler);
+		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
+		| NoSuchMethodException | SecurityException e) {
+			throw new RuntimeException(e);
+		}
+		if (map.putIfAbsent(key, handler) == null) {
+			call(_addGestureListenerTo, component, handler);
+		}
+	}
+	
+	private static void unregister(JComponent component, Object handler) {
+		if (handler != null)
+			call(_removeGestureListenerFrom, component, handler);
+	}
+	
 	private static void doPrivileged(final Method m) {
 		AccessController.doPrivileged(new PrivilegedAction<Void>() {
 			@Override
@@ -236,6 +325,35 @@ public final class GestureUtilities {
 		}
 	}
 	
+	// A listener attached to a component. The same listener gets separate bridges on each component it is attached to.
+	// Components are compared by identity, listeners by equals like they always were.
+	private static final class ListenerKey {
+		private final JComponent _component;
+		private final Object _listener;
+		
+		ListenerKey(JComponent component, Object listener) {
+			this._component = component;
+			this._listener = listener;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ListenerKey)) return false;
+			ListenerKey k = (ListenerKey) o;
+			return this._component == k._component && this._listener.equals(k._listener);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this._component) + this._listener.hashCode();
+		}
+		
+		@Override
+		public String toString() {
+			return this._listener + " on " + this._component;
+		}
+	}
+	
 	// Wrapper around the actual XXListener objects in com.apple.eawt.event.
 	// Called methods will be forwarded to the user Handler object.
 	//
@@ -243,17 +361,32 @@ public final class GestureUtilities {
 	static class GestureInvocationHandler<H, E> implements InvocationHandler {
 		private H _handler;
 		private Class<E> _eventClass;
+		private final GestureStatistics _statistics;
+		private double _scale = 1.0;
+		private double _rotation = 0.0;
+		private int _samples = 0;
 		
-		GestureInvocationHandler(H handler, Class<E> event) {
+		GestureInvocationHandler(H handler, Class<E> event, GestureStatistics statistics) {
 			this._handler = handler;
 			this._eventClass = event;
+			this._statistics = statistics;
 		}
 		
 		@Override
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 			if (this._handler == null) return null;
 			
-			E _event = createEventObject(args[0], this._eventClass);
+			Object appleEvent = args[0];
+			boolean continuous = (this._eventClass == MagnificationEvent.class || this._eventClass == RotationEvent.class);
+			if (!continuous) this._statistics.flush();
+			if (!this._statistics.admit(appleEvent, continuous)) {
+				aggregate(appleEvent);
+				this._statistics.pending(this);
+				return null;
+			}
+			
+			E _event = createEventObject(appleEvent, this._eventClass);
+			if (continuous && this._samples > 0) _event = this._eventClass.cast(combine(appleEvent, (GestureEvent) _event));
 			Class<?>[] types = new Class<?>[args.length];
 			args[0] = _event;
 			types[0] = this._eventClass;
@@ -265,7 +398,17 @@ public final class GestureUtilities {
 			try {
 				Method m = this._handler.getClass().getMethod(method.getName(), types);
 				doPrivileged(m);
-				return m.invoke(this._handler, args);
+				EventType traced = (EventTraceRecorder.isRecording() || Metrics.isEnabled()
+					? EventType.forMethod(method.getName()) : null);
+				long start = System.nanoTime();
+				boolean accounted = HandlerAccounting.begin();
+				try {
+					return m.invoke(this._handler, args);
+				} finally {
+					if (accounted) HandlerAccounting.end(this._handler.getClass());
+					this._statistics.handled(System.nanoTime() - start);
+					if (traced != null) trace(traced, _event, start);
+				}
 			} catch (NoSuchMethodException e) {
 				// Might not get here?
 				if (method.getName().equals("equals") && args.length == 1) {
@@ -276,6 +419,133 @@ public final class GestureUtilities {
 				return null;
 			}
 		}
+		
+		// Puts aside the value of an event which is not delivered on its own.
+		private void aggregate(Object appleEvent) throws Throwable {
+			if (this._eventClass == MagnificationEvent.class) {
+				this._scale *= 1.0 + (double) _getMagnification.invokeExact(appleEvent);
+			} else {
+				this._rotation += (double) _getRotation.invokeExact(appleEvent);
+			}
+			this._samples++;
+		}
+		
+		// An event carrying the values put aside together with those of the given event, which it can consume.
+		private CoalescedGestureEvent combine(Object appleEvent, GestureEvent dispatched) throws Throwable {
+			aggregate(appleEvent);
+			return drain(dispatched);
+		}
+		
+		private CoalescedGestureEvent drain(GestureEvent dispatched) {
+			CoalescedGestureEvent event = new CoalescedGestureEvent();
+			event.set(this._scale - 1.0, this._rotation, this._samples, dispatched);
+			this._scale = 1.0;
+			this._rotation = 0.0;
+			this._samples = 0;
+			return event;
+		}
+		
+		// Delivers the values put aside, called by the statistics of the component.
+		void flush() {
+			if (this._samples == 0 || this._handler == null) return;
+			CoalescedGestureEvent event = drain(null);
+			boolean magnify = (this._eventClass == MagnificationEvent.class);
+			EventType traced = (EventTraceRecorder.isRecording() || Metrics.isEnabled()
+				? (magnify ? EventType.MAGNIFY : EventType.ROTATE) : null);
+			long start = System.nanoTime();
+			boolean accounted = HandlerAccounting.begin();
+			try {
+				if (magnify) {
+					((MagnificationListener) this._handler).magnify(event);
+				} else {
+					((RotationListener) this._handler).rotate(event);
+				}
+			} finally {
+				if (accounted) HandlerAccounting.end(this._handler.getClass());
+				this._statistics.handled(System.nanoTime() - start);
+				if (traced != null) trace(traced, event, start);
+			}
+		}
+	}
+	
+	// Single wrapper implementing all the native listener interfaces for a PrimitiveGestureListener.
+	// Values are read from the native events through method handles, so they are never boxed.
+	static class PrimitiveInvocationHandler implements InvocationHandler {
+		private final PrimitiveGestureListener _listener;
+		
+		PrimitiveInvocationHandler(PrimitiveGestureListener listener) {
+			this._listener = listener;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (args == null || args.length != 1) {
+				if (name.equals("hashCode")) return System.identityHashCode(proxy);
+				if (name.equals("toString")) return "PrimitiveGestureListener[" + this._listener + "]";
+				return null;
+			}
+			if (name.equals("equals")) return Boolean.valueOf(proxy == args[0]);
+			
+			long nanos = System.nanoTime();
+			EventType traced = (EventTraceRecorder.isRecording() || Metrics.isEnabled() ? EventType.forMethod(name) : null);
+			double value = 0.0;
+			boolean accounted = HandlerAccounting.begin();
+			try {
+				switch (name) {
+					case "gestureBegan":
+						this._listener.gestureBegan(nanos);
+						break;
+					case "gestureEnded":
+						this._listener.gestureEnded(nanos);
+						break;
+					case "magnify":
+						value = (double) _getMagnification.invokeExact(args[0]);
+						this._listener.magnify(value, nanos);
+						break;
+					case "rotate":
+						value = (double) _getRotation.invokeExact(args[0]);
+						this._listener.rotate(value, nanos);
+						break;
+					case "swipedUp":
+						this._listener.swipe(SwipeDirection.UP, nanos);
+						break;
+					case "swipedDown":
+						this._listener.swipe(SwipeDirection.DOWN, nanos);
+						break;
+					case "swipedLeft":
+						this._listener.swipe(SwipeDirection.LEFT, nanos);
+						break;
+					case "swipedRight":
+						this._listener.swipe(SwipeDirection.RIGHT, nanos);
+						break;
+					default:
+						break;
+				}
+			} finally {
+				if (accounted) HandlerAccounting.end(this._listener.getClass());
+				if (traced != null) {
+					long latency = System.nanoTime() - nanos;
+					Metrics.record(traced, latency);
+					EventTraceRecorder.record(traced, nanos, latency, value, 0, null);
+				}
+			}
+			return null;
+		}
+	}
+	
+	// Counts a dispatched gesture, and records it together with its magnification or rotation.
+	private static void trace(EventType type, Object event, long start) {
+		long latency = System.nanoTime() - start;
+		Metrics.record(type, latency);
+		if (!EventTraceRecorder.isRecording()) return;
+		double value = 0.0;
+		if (type == EventType.MAGNIFY) {
+			value = ((MagnificationEvent) event).getMagnification();
+		} else if (type == EventType.ROTATE) {
+			value = ((RotationEvent) event).getRotation();
+		}
+		EventTraceRecorder.record(type, start, latency, value, 0, null);
 	}
 	
 	// Wrapper around the actual XXEvent object in com.apple.eawt.event.
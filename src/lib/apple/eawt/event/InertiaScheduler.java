@@ -0,0 +1,94 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+/**
+ * Single fixed-timestep clock shared by all {@link GestureInertia}s with momentum in progress.
+ * It only runs while one of them needs it, and is only used on the AWT Event Dispatch thread.
+ */
+final class InertiaScheduler {
+	/**
+	 * The simulation step, 1/120 of a second.
+	 */
+	static final long STEP_NANOS = TimeUnit.SECONDS.toNanos(1) / 120;
+	
+	// Steps run to catch up after a stall; the rest of the backlog is dropped.
+	private static final int MAX_STEPS = 8;
+	
+	private static final List<GestureInertia> ACTIVE = new ArrayList<>();
+	private static final Timer TIMER = new Timer((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(STEP_NANOS)), new ActionListener() {
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			tick();
+		}
+	});
+	private static long last = 0L;
+	private static long accumulated = 0L;
+	
+	@Deprecated
+	private InertiaScheduler() {
+		throw new InternalError();
+	}
+	
+	static void schedule(GestureInertia inertia) {
+		for (int i = 0; i < ACTIVE.size(); i++) {
+			if (ACTIVE.get(i) == inertia) return;
+		}
+		ACTIVE.add(inertia);
+		if (!TIMER.isRunning()) {
+			last = System.nanoTime();
+			accumulated = 0L;
+			TIMER.start();
+		}
+	}
+	
+	static void cancel(GestureInertia inertia) {
+		for (int i = ACTIVE.size() - 1; i >= 0; i--) {
+			if (ACTIVE.get(i) == inertia) ACTIVE.remove(i);
+		}
+		if (ACTIVE.isEmpty()) TIMER.stop();
+	}
+	
+	private static void tick() {
+		long now = System.nanoTime();
+		accumulated = Math.min(accumulated + now - last, MAX_STEPS * STEP_NANOS);
+		last = now;
+		double dt = STEP_NANOS / 1e9;
+		for (; accumulated >= STEP_NANOS; accumulated -= STEP_NANOS) {
+			// Listeners may stop or start inertia while being told about a step
+			GestureInertia[] stepping = ACTIVE.toArray(new GestureInertia[ACTIVE.size()]);
+			for (int i = 0; i < stepping.length; i++) {
+				if (!stepping[i].step(dt)) cancel(stepping[i]);
+			}
+			if (ACTIVE.isEmpty()) break;
+		}
+		if (ACTIVE.isEmpty()) TIMER.stop();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+/**
+ * Listener interface receiving the momentum steps of a {@link GestureInertia} after a gesture has ended.
+ * It is only notified from the AWT Event Dispatch thread.
+ *
+ * @see GestureInertia
+ */
+public interface MomentumListener {
+	/**
+	 * Invoked once per simulation step while the momentum lasts.
+	 * @param magnification the magnification of the step, with the same meaning as {@link MagnificationEvent#getMagnification()}
+	 * @param rotation the rotation of the step, in degrees
+	 */
+	public void momentum(final double magnification, final double rotation);
+	
+	/**
+	 * Invoked when the momentum has died down, or was stopped by a new gesture.
+	 */
+	public void momentumEnded();
+}
\ No newline at end of file
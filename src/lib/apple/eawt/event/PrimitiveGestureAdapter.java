@@ -0,0 +1,45 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+/**
+ * Abstract adapter class for receiving gesture values. This class is provided
+ * as a convenience for creating listeners.
+ *
+ * @see PrimitiveGestureListener
+ */
+public abstract class PrimitiveGestureAdapter implements PrimitiveGestureListener {
+	@Override
+	public void gestureBegan(final long nanos) { }
+	
+	@Override
+	public void gestureEnded(final long nanos) { }
+	
+	@Override
+	public void magnify(final double delta, final long nanos) { }
+	
+	@Override
+	public void rotate(final double degrees, final long nanos) { }
+	
+	@Override
+	public void swipe(final SwipeDirection direction, final long nanos) { }
+}
\ No newline at end of file
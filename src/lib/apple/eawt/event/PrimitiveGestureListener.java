@@ -0,0 +1,69 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+/**
+ * Listener interface receiving the values of gestures directly, without an event object.
+ *
+ * Unlike the {@link GestureListener} interfaces, the native values are passed straight through:
+ * nothing is allocated or boxed per gesture on the way to the listener. As a consequence gestures
+ * cannot be consumed. Like other gesture listeners, it is only notified from the AWT Event Dispatch thread.
+ *
+ * Each method receives the {@link System#nanoTime()} at which the native gesture was received.
+ *
+ * @see PrimitiveGestureAdapter
+ * @see GestureUtilities#addPrimitiveGestureListenerTo(javax.swing.JComponent, PrimitiveGestureListener)
+ */
+public interface PrimitiveGestureListener {
+	/**
+	 * Invoked when the user has started a continuous gesture (i.e. pinch-zoom or rotate).
+	 * @param nanos when the gesture was received
+	 */
+	public void gestureBegan(final long nanos);
+	
+	/**
+	 * Invoked when the user has finished a continuous gesture.
+	 * @param nanos when the gesture was received
+	 */
+	public void gestureEnded(final long nanos);
+	
+	/**
+	 * Invoked when a magnification gesture is performed by the user.
+	 * @param delta an abstract measure of magnification scale (both positive and negative)
+	 * @param nanos when the gesture was received
+	 */
+	public void magnify(final double delta, final long nanos);
+	
+	/**
+	 * Invoked when a rotation gesture is performed by the user.
+	 * @param degrees the degrees of rotation (both positive and negative)
+	 * @param nanos when the gesture was received
+	 */
+	public void rotate(final double degrees, final long nanos);
+	
+	/**
+	 * Invoked when a swipe gesture is performed by the user.
+	 * @param direction the direction of the swipe
+	 * @param nanos when the gesture was received
+	 */
+	public void swipe(final SwipeDirection direction, final long nanos);
+}
\ No newline at end of file
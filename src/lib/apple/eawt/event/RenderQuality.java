@@ -0,0 +1,67 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+/**
+ * The rendering quality a {@link RenderingQualityCoordinator} selects for its components.
+ *
+ * @see RenderingQualityCoordinator
+ */
+public enum RenderQuality {
+	/**
+	 * Used while a gesture is in progress: nearest-neighbour scaling and no antialiasing.
+	 */
+	INTERACTIVE(RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR, RenderingHints.VALUE_ANTIALIAS_OFF,
+		RenderingHints.VALUE_TEXT_ANTIALIAS_OFF, RenderingHints.VALUE_RENDER_SPEED),
+	
+	/**
+	 * Used otherwise: bicubic scaling and antialiasing.
+	 */
+	FINAL(RenderingHints.VALUE_INTERPOLATION_BICUBIC, RenderingHints.VALUE_ANTIALIAS_ON,
+		RenderingHints.VALUE_TEXT_ANTIALIAS_ON, RenderingHints.VALUE_RENDER_QUALITY);
+	
+	private final Object _interpolation;
+	private final Object _antialiasing;
+	private final Object _textAntialiasing;
+	private final Object _rendering;
+	
+	private RenderQuality(Object interpolation, Object antialiasing, Object textAntialiasing, Object rendering) {
+		this._interpolation = interpolation;
+		this._antialiasing = antialiasing;
+		this._textAntialiasing = textAntialiasing;
+		this._rendering = rendering;
+	}
+	
+	/**
+	 * Sets the rendering hints of this quality on a graphics context, without allocating.
+	 * @param g the graphics context to paint with
+	 */
+	public void applyTo(final Graphics2D g) {
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, this._interpolation);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, this._antialiasing);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, this._textAntialiasing);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, this._rendering);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,218 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Switches a set of components to {@link RenderQuality#INTERACTIVE} while a continuous gesture is in progress on any of
+ * them, and back to {@link RenderQuality#FINAL} with a single repaint once it has ended.
+ *
+ * The current quality is published as the {@value #QUALITY_PROPERTY} client property of each registered component, so a
+ * component reads it when painting, typically with {@link RenderQuality#applyTo(Graphics2D)}, and may listen for its
+ * changes with {@link JComponent#addPropertyChangeListener(String, java.beans.PropertyChangeListener)}. With snapshots
+ * enabled, the coordinator also paints each component into a reused image just before a gesture starts, which the
+ * component can draw transformed instead of its full content while interactive.
+ *
+ * Adding the coordinator as a {@link MomentumListener} of a {@link GestureInertia} keeps the interactive quality until the
+ * momentum has ended. All methods must be called on the AWT Event Dispatch thread.
+ */
+public final class RenderingQualityCoordinator extends GestureAdapter implements MomentumListener {
+	/**
+	 * The client property holding the current {@link RenderQuality} of a registered component.
+	 */
+	public static final String QUALITY_PROPERTY = "lib.apple.eawt.event.RenderQuality";
+	
+	private final List<JComponent> _components = new ArrayList<>();
+	private final Map<JComponent, BufferedImage> _snapshots = new WeakHashMap<>();
+	private final Timer _settle;
+	private RenderQuality _quality = RenderQuality.FINAL;
+	private boolean _snapshotsEnabled = false;
+	private boolean _inGesture = false;
+	
+	/**
+	 * Creates a coordinator that returns to the final quality 150 ms after the last gesture or momentum step.
+	 */
+	public RenderingQualityCoordinator() {
+		this(150, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * @param delay how long after the last gesture or momentum step the final quality is restored
+	 * @param unit the unit of the delay
+	 */
+	public RenderingQualityCoordinator(final long delay, final TimeUnit unit) {
+		this._settle = new Timer((int) Math.max(1, unit.toMillis(delay)), new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setQuality(RenderQuality.FINAL);
+			}
+		});
+		this._settle.setRepeats(false);
+	}
+	
+	/**
+	 * Adds a component to the set, and attaches the coordinator to its gestures.
+	 * @param component the component to coordinate
+	 */
+	public void register(final JComponent component) {
+		for (JComponent c : this._components) {
+			if (c == component) return;
+		}
+		this._components.add(component);
+		component.putClientProperty(QUALITY_PROPERTY, this._quality);
+		GestureUtilities.addGestureListenerTo(component, this);
+	}
+	
+	/**
+	 * Removes a component from the set, detaches the coordinator from its gestures and restores the final quality of the component.
+	 * @param component the component to remove
+	 */
+	public void unregister(final JComponent component) {
+		for (int i = 0; i < this._components.size(); i++) {
+			if (this._components.get(i) == component) {
+				this._components.remove(i);
+				this._snapshots.remove(component);
+				GestureUtilities.removeGestureListenerFrom(component, this);
+				if (component.getClientProperty(QUALITY_PROPERTY) != RenderQuality.FINAL) {
+					component.putClientProperty(QUALITY_PROPERTY, RenderQuality.FINAL);
+					component.repaint();
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @return the quality the components currently render at
+	 */
+	public RenderQuality getQuality() {
+		return this._quality;
+	}
+	
+	/**
+	 * Selects whether the components are painted into a snapshot when a gesture starts. The default is <code>false</code>.
+	 * @param enabled <code>true</code> to take snapshots
+	 */
+	public void setSnapshotsEnabled(final boolean enabled) {
+		this._snapshotsEnabled = enabled;
+		if (!enabled) this._snapshots.clear();
+	}
+	
+	/**
+	 * @param component a registered component
+	 * @return the image the component was painted into when the current gesture started, or <code>null</code>
+	 */
+	public BufferedImage getSnapshot(final JComponent component) {
+		return (this._quality == RenderQuality.INTERACTIVE ? this._snapshots.get(component) : null);
+	}
+	
+	@Override
+	public void gestureBegan(final GesturePhaseEvent e) {
+		this._inGesture = true;
+		this._settle.stop();
+		setQuality(RenderQuality.INTERACTIVE);
+	}
+	
+	@Override
+	public void gestureEnded(final GesturePhaseEvent e) {
+		this._inGesture = false;
+		this._settle.restart();
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		activity();
+	}
+	
+	@Override
+	public void rotate(final RotationEvent e) {
+		activity();
+	}
+	
+	@Override
+	public void momentum(final double magnification, final double rotation) {
+		activity();
+	}
+	
+	@Override
+	public void momentumEnded() {
+		this._settle.restart();
+	}
+	
+	// Changes outside a phase pair, like momentum, keep the interactive quality until they settle.
+	private void activity() {
+		if (this._quality != RenderQuality.INTERACTIVE) setQuality(RenderQuality.INTERACTIVE);
+		if (!this._inGesture) this._settle.restart();
+	}
+	
+	private void setQuality(RenderQuality quality) {
+		if (this._quality == quality) return;
+		if (quality == RenderQuality.INTERACTIVE && this._snapshotsEnabled) snapshot();
+		this._quality = quality;
+		for (JComponent c : this._components) {
+			c.putClientProperty(QUALITY_PROPERTY, quality);
+			if (quality == RenderQuality.FINAL) c.repaint();
+		}
+	}
+	
+	// Paints each component at the final quality into an image kept for as long as its size does not change.
+	private void snapshot() {
+		for (JComponent c : this._components) {
+			int w = c.getWidth(), h = c.getHeight();
+			if (w <= 0 || h <= 0 || !c.isShowing()) {
+				this._snapshots.remove(c);
+				continue;
+			}
+			BufferedImage image = this._snapshots.get(c);
+			if (image == null || image.getWidth() != w || image.getHeight() != h) {
+				image = c.getGraphicsConfiguration().createCompatibleImage(w, h, c.isOpaque()
+					? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+				this._snapshots.put(c, image);
+			}
+			Graphics2D g = image.createGraphics();
+			try {
+				if (!c.isOpaque()) {
+					g.setComposite(AlphaComposite.Clear);
+					g.fillRect(0, 0, w, h);
+					g.setComposite(AlphaComposite.SrcOver);
+				}
+				c.paint(g);
+			} finally {
+				g.dispose();
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Gesture listener that starts loading the pages next to the current one as soon as a gesture begins, so that the
+ * page is ready when the swipe that turns to it arrives.
+ *
+ * The prefetcher is registered with {@link GestureUtilities#addGestureListenerTo(javax.swing.JComponent, GestureListener)}
+ * on the component showing the pages. A swipe to the left turns to the next page and a swipe to the right to the previous
+ * one; the {@link PageListener}s are then handed the page being loaded or already loaded. Pages are kept in a small
+ * cache, and loads of pages which drop out of it, or which are no longer next to the current page when a gesture ends,
+ * are cancelled. All methods other than {@link #getPage(int)} must be called on the AWT Event Dispatch thread.
+ *
+ * @param <P> the type of a loaded page
+ */
+public final class SwipePrefetcher<P> extends GestureAdapter {
+	/**
+	 * Loads and renders a page. Called on a background thread, and should respond to interruption when cancelled.
+	 *
+	 * @param <P> the type of a loaded page
+	 */
+	public static interface Loader<P> {
+		/**
+		 * @param index the index of the page to load
+		 * @return the loaded page
+		 * @throws Exception if the page cannot be loaded
+		 */
+		public P load(final int index) throws Exception;
+	}
+	
+	/**
+	 * Listener interface notified when a swipe turns the page.
+	 *
+	 * @param <P> the type of a loaded page
+	 */
+	public static interface PageListener<P> {
+		/**
+		 * Invoked on the AWT Event Dispatch thread when a swipe has turned the page.
+		 * @param index the index of the new current page
+		 * @param page the page, usually already loaded
+		 */
+		public void pageTurned(final int index, final Future<P> page);
+	}
+	
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newFixedThreadPool(2, new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "lib.apple.eawt.event.SwipePrefetcher");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	
+	private final Loader<P> _loader;
+	private final ExecutorService _executor;
+	private final int _capacity;
+	private final Map<Integer, Future<P>> _pages = new HashMap<>();
+	private final List<PageListener<P>> _listeners = new ArrayList<>();
+	private volatile int _current = 0;
+	private volatile int _count = -1;
+	
+	/**
+	 * Creates a prefetcher loading on two shared daemon threads.
+	 * @param loader loads the pages
+	 * @param capacity the number of pages kept, at least 3
+	 */
+	public SwipePrefetcher(final Loader<P> loader, final int capacity) {
+		this(loader, capacity, DEFAULT_EXECUTOR);
+	}
+	
+	/**
+	 * @param loader loads the pages
+	 * @param capacity the number of pages kept, at least 3
+	 * @param executor runs the loads
+	 */
+	public SwipePrefetcher(final Loader<P> loader, final int capacity, final ExecutorService executor) {
+		if (loader == null) throw new NullPointerException("loader");
+		if (capacity < 3) throw new IllegalArgumentException("capacity: " + capacity);
+		this._loader = loader;
+		this._capacity = capacity;
+		this._executor = executor;
+	}
+	
+	/**
+	 * @param listener to be notified when a swipe turns the page
+	 */
+	public void addPageListener(final PageListener<P> listener) {
+		this._listeners.add(listener);
+	}
+	
+	/**
+	 * @param listener to be removed
+	 */
+	public void removePageListener(final PageListener<P> listener) {
+		this._listeners.remove(listener);
+	}
+	
+	/**
+	 * @return the index of the current page
+	 */
+	public int getCurrentIndex() {
+		return this._current;
+	}
+	
+	/**
+	 * Moves to a page without a swipe, for example after navigating by keyboard.
+	 * @param index the index of the new current page
+	 */
+	public void setCurrentIndex(final int index) {
+		this._current = index;
+	}
+	
+	/**
+	 * @param count the number of pages, or <code>-1</code> if unknown; pages past the end are never loaded
+	 */
+	public void setPageCount(final int count) {
+		this._count = count;
+	}
+	
+	/**
+	 * Returns a page, starting to load it if it is not cached or its last load failed.
+	 * @param index the index of the page
+	 * @return the page, or <code>null</code> if the index is out of range
+	 */
+	public Future<P> getPage(final int index) {
+		if (index < 0 || (this._count >= 0 && index >= this._count)) return null;
+		final Integer key = Integer.valueOf(index);
+		synchronized (this._pages) {
+			Future<P> page = this._pages.get(key);
+			if (page != null && !page.isCancelled() && !failed(page)) return page;
+			page = this._executor.submit(new Callable<P>() {
+				@Override
+				public P call() throws Exception {
+					return SwipePrefetcher.this._loader.load(index);
+				}
+			});
+			this._pages.put(key, page);
+			while (this._pages.size() > this._capacity) {
+				evictFurthest(key);
+			}
+			return page;
+		}
+	}
+	
+	// Drops the page furthest from the current one, which is the least likely to be swiped to
+	private void evictFurthest(Integer keep) {
+		int current = this._current;
+		Integer furthest = null;
+		for (Integer index : this._pages.keySet()) {
+			if (index.equals(keep)) continue;
+			if (furthest == null || Math.abs(index.intValue() - current) > Math.abs(furthest.intValue() - current)) furthest = index;
+		}
+		this._pages.remove(furthest).cancel(true);
+	}
+	
+	private static boolean failed(Future<?> page) {
+		if (!page.isDone()) return false;
+		try {
+			page.get();
+			return false;
+		} catch (ExecutionException e) {
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	/**
+	 * Cancels the loads in progress of all pages other than the current one and its neighbours.
+	 */
+	public void cancelDistant() {
+		synchronized (this._pages) {
+			for (Iterator<Map.Entry<Integer, Future<P>>> it = this._pages.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<Integer, Future<P>> entry = it.next();
+				if (Math.abs(entry.getKey().intValue() - this._current) > 1 && !entry.getValue().isDone()) {
+					entry.getValue().cancel(true);
+					it.remove();
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void gestureBegan(final GesturePhaseEvent e) {
+		getPage(this._current);
+		getPage(this._current + 1);
+		getPage(this._current - 1);
+	}
+	
+	@Override
+	public void gestureEnded(final GesturePhaseEvent e) {
+		cancelDistant();
+	}
+	
+	@Override
+	public void swipedLeft(final SwipeEvent e) {
+		turn(this._current + 1);
+	}
+	
+	@Override
+	public void swipedRight(final SwipeEvent e) {
+		turn(this._current - 1);
+	}
+	
+	private void turn(int index) {
+		Future<P> page = getPage(index);
+		if (page == null) return;
+		int step = index - this._current;
+		this._current = index;
+		for (PageListener<P> l : new ArrayList<>(this._listeners)) {
+			l.pageTurned(index, page);
+		}
+		getPage(index + step);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,402 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.AlphaComposite;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Multi-resolution cache of an image, so that a viewer can paint any magnification from a prepared level instead of
+ * scaling the full image.
+ *
+ * Level 0 holds the image at full resolution, and each following level halves the resolution, down to a single tile.
+ * Tiles are generated in the background, stored outside of the Java heap and evicted least recently used first once the
+ * cache exceeds its byte budget; evicted tiles are recycled for the next ones. Painting never waits for a tile: a missing
+ * one is queued for generation and its area drawn from the nearest coarser level cached, or left empty, until the
+ * repaint target is repainted with it. The pyramid is registered as a {@link MagnificationListener} with
+ * {@link GestureUtilities#addGestureListenerTo(javax.swing.JComponent, GestureListener)}: while the user zooms,
+ * the visible tiles of the next level in the direction of the zoom are generated in the background.
+ *
+ * {@link #setViewport(double, int, int, int, int)} and {@link #paint(Graphics2D)} must be called on the AWT Event
+ * Dispatch thread; the source image must not change afterwards.
+ */
+public final class TilePyramid implements MagnificationListener {
+	private static final int MAX_FREE = 4;
+	
+	private static final ExecutorService GENERATOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "lib.apple.eawt.event.TilePyramid");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	});
+	
+	private final BufferedImage _source;
+	private final int _tileSize;
+	private final int _levels;
+	private final long _budget;
+	private final LinkedHashMap<Long, IntBuffer> _tiles = new LinkedHashMap<>(64, 0.75f, true);
+	private final ArrayDeque<IntBuffer> _free = new ArrayDeque<>();
+	private final Set<Long> _pending = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	private long _bytes = 0L;
+	private volatile Component _repaintTarget = null;
+	
+	private final ThreadLocal<Scratch> _scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch(TilePyramid.this._tileSize);
+		}
+	};
+	
+	private volatile double _scale = 1.0;
+	private volatile int _viewX = 0;
+	private volatile int _viewY = 0;
+	private volatile int _viewWidth = 0;
+	private volatile int _viewHeight = 0;
+	
+	/**
+	 * @param source the full-resolution image
+	 * @param tileSize the width and height of a tile, in pixels
+	 * @param byteBudget the most memory the tiles may take; at least one tile is always kept
+	 */
+	public TilePyramid(final BufferedImage source, final int tileSize, final long byteBudget) {
+		if (source == null) throw new NullPointerException("source");
+		if (tileSize < 2 || (tileSize & 1) != 0) throw new IllegalArgumentException("tileSize: " + tileSize);
+		this._source = source;
+		this._tileSize = tileSize;
+		this._budget = byteBudget;
+		int levels = 1;
+		while (columns(levels - 1) > 1 || rows(levels - 1) > 1) levels++;
+		this._levels = levels;
+		this._viewWidth = source.getWidth();
+		this._viewHeight = source.getHeight();
+	}
+	
+	/**
+	 * @return the number of levels, the last one fitting in a single tile
+	 */
+	public int getLevelCount() {
+		return this._levels;
+	}
+	
+	/**
+	 * @param scale the number of screen pixels per image pixel
+	 * @return the coarsest level with at least the resolution needed at that scale
+	 */
+	public int getLevel(final double scale) {
+		if (!(scale > 0.0) || scale >= 1.0) return 0;
+		int level = (int) Math.floor(Math.log(1.0 / scale) / Math.log(2.0));
+		return Math.min(level, this._levels - 1);
+	}
+	
+	/**
+	 * @return the memory currently taken by the cached tiles, in bytes
+	 */
+	public long getCachedBytes() {
+		synchronized (this._tiles) {
+			return this._bytes;
+		}
+	}
+	
+	/**
+	 * Sets the part of the image being shown and its scale.
+	 * @param scale the number of screen pixels per image pixel
+	 * @param x the visible area, in image coordinates
+	 * @param y the visible area, in image coordinates
+	 * @param width the visible area, in image coordinates
+	 * @param height the visible area, in image coordinates
+	 */
+	public void setViewport(final double scale, final int x, final int y, final int width, final int height) {
+		this._scale = scale;
+		this._viewX = x;
+		this._viewY = y;
+		this._viewWidth = width;
+		this._viewHeight = height;
+	}
+	
+	/**
+	 * @param component the component repainted when a tile missing from the last paint is ready, or <code>null</code>
+	 */
+	public void setRepaintTarget(final Component component) {
+		this._repaintTarget = component;
+	}
+	
+	/**
+	 * Paints the visible area from the level matching the scale. The graphics context is expected to be
+	 * transformed to image coordinates; interpolation follows its rendering hints.
+	 * Missing tiles are queued for generation and painted from a coarser level if one is cached.
+	 *
+	 * @param g the graphics context to paint with
+	 */
+	public void paint(final Graphics2D g) {
+		int level = getLevel(this._scale);
+		int extent = this._tileSize << level;
+		int c0 = Math.max(0, this._viewX / extent), r0 = Math.max(0, this._viewY / extent);
+		int c1 = Math.min(columns(level) - 1, (this._viewX + this._viewWidth - 1) / extent);
+		int r1 = Math.min(rows(level) - 1, (this._viewY + this._viewHeight - 1) / extent);
+		Scratch scratch = this._scratch.get();
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				if (copy(key(level, c, r), scratch.pixels)) {
+					g.drawImage(scratch.image, c * extent, r * extent, extent, extent, null);
+				} else {
+					schedule(level, c, r);
+					paintCoarser(g, level, c, r, scratch);
+				}
+			}
+		}
+	}
+	
+	// Draws the area of a missing tile scaled up from the nearest coarser level which has it.
+	private void paintCoarser(Graphics2D g, int level, int col, int row, Scratch scratch) {
+		int extent = this._tileSize << level;
+		int x = col * extent, y = row * extent;
+		for (int coarser = level + 1; coarser < this._levels; coarser++) {
+			int span = this._tileSize >> (coarser - level); // Tile pixels covering the area
+			if (span == 0) return;
+			int coarserExtent = this._tileSize << coarser;
+			int c = x / coarserExtent, r = y / coarserExtent;
+			if (copy(key(coarser, c, r), scratch.pixels)) {
+				int sx = (x - c * coarserExtent) >> coarser, sy = (y - r * coarserExtent) >> coarser;
+				g.drawImage(scratch.image, x, y, x + extent, y + extent, sx, sy, sx + span, sy + span, null);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Generates the visible tiles of a level in the background.
+	 * @param level the level to prepare
+	 */
+	public void prefetch(final int level) {
+		if (level < 0 || level >= this._levels) return;
+		int extent = this._tileSize << level;
+		int c0 = Math.max(0, this._viewX / extent), r0 = Math.max(0, this._viewY / extent);
+		int c1 = Math.min(columns(level) - 1, (this._viewX + this._viewWidth - 1) / extent);
+		int r1 = Math.min(rows(level) - 1, (this._viewY + this._viewHeight - 1) / extent);
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				schedule(level, c, r);
+			}
+		}
+	}
+	
+	// Queues a tile for generation unless it is cached or already queued.
+	private void schedule(final int level, final int col, final int row) {
+		final Long key = key(level, col, row);
+		synchronized (this._tiles) {
+			if (this._tiles.containsKey(key)) return;
+		}
+		if (!this._pending.add(key)) return;
+		GENERATOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					generate(level, col, row, key);
+				} finally {
+					TilePyramid.this._pending.remove(key);
+				}
+				Component target = TilePyramid.this._repaintTarget;
+				if (target != null && level == getLevel(TilePyramid.this._scale)) target.repaint();
+			}
+		});
+	}
+	
+	/**
+	 * Drops all cached tiles.
+	 */
+	public void clear() {
+		synchronized (this._tiles) {
+			for (IntBuffer tile : this._tiles.values()) {
+				recycle(tile);
+			}
+			this._tiles.clear();
+			this._bytes = 0L;
+		}
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		double m = e.getMagnification();
+		if (m == 0.0) return;
+		int level = getLevel(this._scale);
+		prefetch(m > 0.0 ? level - 1 : level + 1);
+	}
+	
+	// Copies a cached tile into the pixels. Tiles are only read under the lock, so evicted ones can be recycled.
+	private boolean copy(Long key, int[] pixels) {
+		synchronized (this._tiles) {
+			IntBuffer tile = this._tiles.get(key);
+			if (tile == null) return false;
+			tile.clear();
+			tile.get(pixels);
+			return true;
+		}
+	}
+	
+	private void recycle(IntBuffer tile) {
+		if (this._free.size() < MAX_FREE) this._free.push(tile);
+	}
+	
+	// Halves the four tiles of the finer level if they are all cached, otherwise scales the source, then caches the tile.
+	// Only called on the generator thread.
+	private void generate(int level, int col, int row, Long key) {
+		int size = this._tileSize;
+		Scratch scratch = this._scratch.get();
+		int[] out = scratch.pixels;
+		int[][] children = scratch.children;
+		boolean cached = (level > 0);
+		if (cached) {
+			synchronized (this._tiles) {
+				for (int i = 0; i < 4 && cached; i++) {
+					int c = col * 2 + (i & 1), r = row * 2 + (i >> 1);
+					if (c >= columns(level - 1) || r >= rows(level - 1)) {
+						children[i] = null;
+					} else {
+						children[i] = scratch.child(i);
+						cached = copy(key(level - 1, c, r), children[i]);
+					}
+				}
+			}
+		}
+		
+		if (cached) {
+			int half = size / 2;
+			for (int i = 0; i < 4; i++) {
+				int ox = (i & 1) * half, oy = (i >> 1) * half;
+				int[] in = children[i];
+				if (in == null) {
+					for (int y = 0; y < half; y++) {
+						Arrays.fill(out, (oy + y) * size + ox, (oy + y) * size + ox + half, 0);
+					}
+					continue;
+				}
+				for (int y = 0; y < half; y++) {
+					for (int x = 0; x < half; x++) {
+						int p = (y * 2) * size + x * 2;
+						out[(oy + y) * size + ox + x] = average(in[p], in[p + 1], in[p + size], in[p + size + 1]);
+					}
+				}
+			}
+		} else {
+			int extent = size << level;
+			Graphics2D g = scratch.image.createGraphics();
+			try {
+				g.setComposite(AlphaComposite.Clear);
+				g.fillRect(0, 0, size, size);
+				g.setComposite(AlphaComposite.Src);
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				int sx = col * extent, sy = row * extent;
+				int sw = Math.min(extent, this._source.getWidth() - sx), sh = Math.min(extent, this._source.getHeight() - sy);
+				int dw = Math.max(1, (int) Math.ceil((double) sw / (1 << level)));
+				int dh = Math.max(1, (int) Math.ceil((double) sh / (1 << level)));
+				g.drawImage(this._source, 0, 0, dw, dh, sx, sy, sx + sw, sy + sh, null);
+			} finally {
+				g.dispose();
+			}
+		}
+		
+		IntBuffer tile;
+		synchronized (this._tiles) {
+			if (this._tiles.containsKey(key)) return;
+			tile = this._free.poll();
+		}
+		if (tile == null) tile = ByteBuffer.allocateDirect(size * size * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+		tile.clear();
+		tile.put(out); // Not yet visible to any reader
+		synchronized (this._tiles) {
+			this._tiles.put(key, tile);
+			this._bytes += tile.capacity() * 4L;
+			Iterator<Map.Entry<Long, IntBuffer>> it = this._tiles.entrySet().iterator();
+			while (this._bytes > this._budget && this._tiles.size() > 1) {
+				IntBuffer evicted = it.next().getValue();
+				it.remove();
+				this._bytes -= evicted.capacity() * 4L;
+				recycle(evicted);
+			}
+		}
+	}
+	
+	// Averages four premultiplied pixels channel by channel.
+	private static int average(int a, int b, int c, int d) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+			result |= ((sum + 2) >> 2) << shift;
+		}
+		return result;
+	}
+	
+	private int columns(int level) {
+		int width = (this._source.getWidth() + (1 << level) - 1) >> level;
+		return Math.max(1, (width + this._tileSize - 1) / this._tileSize);
+	}
+	
+	private int rows(int level) {
+		int height = (this._source.getHeight() + (1 << level) - 1) >> level;
+		return Math.max(1, (height + this._tileSize - 1) / this._tileSize);
+	}
+	
+	private static Long key(int level, int col, int row) {
+		return Long.valueOf(((long) level << 58) | ((long) col << 29) | row);
+	}
+	
+	// Per-thread buffers for generating and painting tiles. The child buffers are only allocated on the generator thread.
+	private static final class Scratch {
+		final int size;
+		final BufferedImage image;
+		final int[] pixels;
+		final int[][] children = new int[4][];
+		private int[][] _child = null;
+		
+		Scratch(int size) {
+			this.size = size;
+			this.image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB_PRE);
+			this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+		}
+		
+		int[] child(int i) {
+			if (this._child == null) this._child = new int[4][this.size * this.size];
+			return this._child[i];
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,350 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+
+import javax.swing.JComponent;
+
+/**
+ * Gesture listener that keeps the {@link AffineTransform} a component paints its content with, and updates it in place
+ * from pinch and rotate gestures.
+ *
+ * The controller is registered with {@link GestureUtilities#addGestureListenerTo(JComponent, GestureListener)} on the
+ * component it belongs to, which applies {@link #getTransform()} when painting. Each gesture scales and rotates the
+ * transform about the anchor, within the configured limits, and the component is repainted over the area the content
+ * covered before and after the change. A {@link GestureInertia} can drive the controller further by adding it as a
+ * {@link MomentumListener}. Updates do not allocate. All methods must be called on the AWT Event Dispatch thread.
+ */
+public final class TransformController extends GestureAdapter implements MomentumListener {
+	/**
+	 * The point the content is scaled and rotated about.
+	 */
+	public static enum Anchor {
+		/**
+		 * The center of the component.
+		 */
+		CENTER,
+		
+		/**
+		 * The last position of the mouse pointer over the component, or its center if unknown.
+		 */
+		POINTER,
+		
+		/**
+		 * A point set with {@link TransformController#setAnchorPoint(double, double)}.
+		 */
+		FIXED
+	}
+	
+	private final JComponent _component;
+	private final AffineTransform _transform = new AffineTransform();
+	private final AffineTransform _delta = new AffineTransform();
+	private final Rectangle _dirty = new Rectangle();
+	private TransformListener[] _listeners = new TransformListener[0];
+	
+	private Anchor _anchor = Anchor.CENTER;
+	private double _anchorX = 0.0;
+	private double _anchorY = 0.0;
+	private double _pointerX = Double.NaN;
+	private double _pointerY = Double.NaN;
+	private MouseAdapter _pointerTracker = null;
+	
+	private double _minScale = 0.01;
+	private double _maxScale = 100.0;
+	private double _minAngle = Double.NEGATIVE_INFINITY;
+	private double _maxAngle = Double.POSITIVE_INFINITY;
+	private double _angle = 0.0;
+	
+	// Content bounds in content coordinates; empty means the bounds of the component
+	private double _contentX = 0.0;
+	private double _contentY = 0.0;
+	private double _contentWidth = 0.0;
+	private double _contentHeight = 0.0;
+	private boolean _repaint = true;
+	
+	/**
+	 * @param component the component painting with the transform
+	 */
+	public TransformController(final JComponent component) {
+		if (component == null) throw new NullPointerException("component");
+		this._component = component;
+	}
+	
+	/**
+	 * @return the component the transform belongs to
+	 */
+	public JComponent getComponent() {
+		return this._component;
+	}
+	
+	/**
+	 * Returns the transform itself, not a copy, so that painting does not allocate. It must not be modified
+	 * other than through the controller.
+	 *
+	 * @return the current transform from content to component coordinates
+	 */
+	public AffineTransform getTransform() {
+		return this._transform;
+	}
+	
+	/**
+	 * @return the current scale of the transform
+	 */
+	public double getScale() {
+		return Math.sqrt(Math.abs(this._transform.getDeterminant()));
+	}
+	
+	/**
+	 * @return the accumulated rotation of the transform, in degrees, positive clockwise on screen
+	 */
+	public double getRotation() {
+		return Math.toDegrees(this._angle);
+	}
+	
+	/**
+	 * @param listener to be notified when the transform changes
+	 */
+	public void addTransformListener(final TransformListener listener) {
+		TransformListener[] listeners = new TransformListener[this._listeners.length + 1];
+		System.arraycopy(this._listeners, 0, listeners, 0, this._listeners.length);
+		listeners[this._listeners.length] = listener;
+		this._listeners = listeners;
+	}
+	
+	/**
+	 * @param listener to be removed
+	 */
+	public void removeTransformListener(final TransformListener listener) {
+		for (int i = 0; i < this._listeners.length; i++) {
+			if (this._listeners[i] == listener) {
+				TransformListener[] listeners = new TransformListener[this._listeners.length - 1];
+				System.arraycopy(this._listeners, 0, listeners, 0, i);
+				System.arraycopy(this._listeners, i + 1, listeners, i, listeners.length - i);
+				this._listeners = listeners;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Selects the point the content is scaled and rotated about. The default is {@link Anchor#CENTER}.
+	 * @param anchor the anchor
+	 */
+	public void setAnchor(final Anchor anchor) {
+		if (anchor == null) throw new NullPointerException("anchor");
+		this._anchor = anchor;
+		if (anchor == Anchor.POINTER && this._pointerTracker == null) {
+			this._pointerTracker = new MouseAdapter() {
+				@Override
+				public void mouseMoved(MouseEvent e) {
+					TransformController.this._pointerX = e.getX();
+					TransformController.this._pointerY = e.getY();
+				}
+				
+				@Override
+				public void mouseExited(MouseEvent e) {
+					TransformController.this._pointerX = Double.NaN;
+					TransformController.this._pointerY = Double.NaN;
+				}
+			};
+			this._component.addMouseListener(this._pointerTracker);
+			this._component.addMouseMotionListener(this._pointerTracker);
+		} else if (anchor != Anchor.POINTER && this._pointerTracker != null) {
+			this._component.removeMouseListener(this._pointerTracker);
+			this._component.removeMouseMotionListener(this._pointerTracker);
+			this._pointerTracker = null;
+		}
+	}
+	
+	/**
+	 * Sets the anchor used with {@link Anchor#FIXED}.
+	 * @param x in component coordinates
+	 * @param y in component coordinates
+	 */
+	public void setAnchorPoint(final double x, final double y) {
+		this._anchorX = x;
+		this._anchorY = y;
+	}
+	
+	/**
+	 * Limits the scale of the transform. The default is from 0.01 to 100.
+	 * @param min the smallest scale
+	 * @param max the largest scale
+	 */
+	public void setScaleLimits(final double min, final double max) {
+		if (!(min > 0.0) || max < min) throw new IllegalArgumentException(min + ", " + max);
+		this._minScale = min;
+		this._maxScale = max;
+	}
+	
+	/**
+	 * Limits the accumulated rotation of the transform. The default is unlimited.
+	 * @param min the smallest rotation, in degrees
+	 * @param max the largest rotation, in degrees
+	 */
+	public void setRotationLimits(final double min, final double max) {
+		if (max < min) throw new IllegalArgumentException(min + ", " + max);
+		this._minAngle = Math.toRadians(min);
+		this._maxAngle = Math.toRadians(max);
+	}
+	
+	/**
+	 * Sets the bounds of the content, which the dirty regions are computed from. By default the content is
+	 * assumed to cover the bounds of the component at the identity transform.
+	 *
+	 * @param x in content coordinates
+	 * @param y in content coordinates
+	 * @param width in content coordinates
+	 * @param height in content coordinates
+	 */
+	public void setContentBounds(final double x, final double y, final double width, final double height) {
+		this._contentX = x;
+		this._contentY = y;
+		this._contentWidth = width;
+		this._contentHeight = height;
+	}
+	
+	/**
+	 * Selects whether the controller repaints the dirty region of the component itself. The default is <code>true</code>.
+	 * @param repaint <code>false</code> to leave repainting to the {@link TransformListener}s
+	 */
+	public void setRepaintOnChange(final boolean repaint) {
+		this._repaint = repaint;
+	}
+	
+	/**
+	 * Resets the transform to the identity.
+	 */
+	public void reset() {
+		bounds(true);
+		this._transform.setToIdentity();
+		this._angle = 0.0;
+		bounds(false);
+		changed();
+	}
+	
+	/**
+	 * Scales and rotates the transform about the anchor, within the configured limits.
+	 * @param magnification the relative scale, with the same meaning as {@link MagnificationEvent#getMagnification()}
+	 * @param rotation the rotation in degrees, positive counter-clockwise like {@link RotationEvent#getRotation()}
+	 */
+	public void apply(final double magnification, final double rotation) {
+		double current = getScale();
+		double scale = Math.min(Math.max(current * (1.0 + magnification), this._minScale), this._maxScale);
+		double s = (current > 0.0 ? scale / current : 1.0);
+		// Java 2D's y axis points down, so a counter-clockwise rotation has a negative angle
+		double angle = Math.min(Math.max(this._angle - Math.toRadians(rotation), this._minAngle), this._maxAngle);
+		double theta = angle - this._angle;
+		if (s == 1.0 && theta == 0.0) return;
+		
+		double ax, ay;
+		if (this._anchor == Anchor.FIXED) {
+			ax = this._anchorX;
+			ay = this._anchorY;
+		} else if (this._anchor == Anchor.POINTER && !Double.isNaN(this._pointerX)) {
+			ax = this._pointerX;
+			ay = this._pointerY;
+		} else {
+			ax = this._component.getWidth() / 2.0;
+			ay = this._component.getHeight() / 2.0;
+		}
+		
+		bounds(true);
+		this._delta.setToTranslation(ax, ay);
+		this._delta.rotate(theta);
+		this._delta.scale(s, s);
+		this._delta.translate(-ax, -ay);
+		this._transform.preConcatenate(this._delta);
+		this._angle = angle;
+		bounds(false);
+		changed();
+	}
+	
+	@Override
+	public void magnify(final MagnificationEvent e) {
+		apply(e.getMagnification(), 0.0);
+	}
+	
+	@Override
+	public void rotate(final RotationEvent e) {
+		apply(0.0, e.getRotation());
+	}
+	
+	@Override
+	public void momentum(final double magnification, final double rotation) {
+		apply(magnification, rotation);
+	}
+	
+	@Override
+	public void momentumEnded() { }
+	
+	// Sets the dirty region to the bounding box of the content, or adds the box to it.
+	private void bounds(boolean reset) {
+		double x = this._contentX, y = this._contentY, w = this._contentWidth, h = this._contentHeight;
+		if (w <= 0.0 || h <= 0.0) {
+			x = 0.0;
+			y = 0.0;
+			w = this._component.getWidth();
+			h = this._component.getHeight();
+		}
+		AffineTransform t = this._transform;
+		double m00 = t.getScaleX(), m01 = t.getShearX(), m02 = t.getTranslateX();
+		double m10 = t.getShearY(), m11 = t.getScaleY(), m12 = t.getTranslateY();
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int corner = 0; corner < 4; corner++) {
+			double cx = ((corner & 1) == 0 ? x : x + w);
+			double cy = ((corner & 2) == 0 ? y : y + h);
+			double px = m00 * cx + m01 * cy + m02;
+			double py = m10 * cx + m11 * cy + m12;
+			minX = Math.min(minX, px);
+			minY = Math.min(minY, py);
+			maxX = Math.max(maxX, px);
+			maxY = Math.max(maxY, py);
+		}
+		int x0 = (int) Math.floor(minX), y0 = (int) Math.floor(minY);
+		int x1 = (int) Math.ceil(maxX), y1 = (int) Math.ceil(maxY);
+		if (reset) {
+			this._dirty.setBounds(x0, y0, x1 - x0, y1 - y0);
+		} else {
+			this._dirty.add(x0, y0);
+			this._dirty.add(x1, y1);
+		}
+	}
+	
+	private void changed() {
+		Rectangle dirty = this._dirty;
+		int x0 = Math.max(dirty.x, 0), y0 = Math.max(dirty.y, 0);
+		int x1 = Math.min(dirty.x + dirty.width, this._component.getWidth());
+		int y1 = Math.min(dirty.y + dirty.height, this._component.getHeight());
+		dirty.setBounds(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+		if (this._repaint && !dirty.isEmpty()) this._component.repaint(dirty.x, dirty.y, dirty.width, dirty.height);
+		TransformListener[] listeners = this._listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].transformChanged(this, dirty);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.eawt.event;
+
+import java.awt.Rectangle;
+
+/**
+ * Listener interface notified when a {@link TransformController} has changed its transform.
+ * It is only notified from the AWT Event Dispatch thread.
+ *
+ * @see TransformController
+ */
+public interface TransformListener {
+	/**
+	 * Invoked after the transform has changed.
+	 * @param controller the controller whose transform changed
+	 * @param dirty the area of the component, in component coordinates, covered by the content before or after the change.
+	 * The rectangle is reused by the controller and only valid during the call.
+	 */
+	public void transformChanged(final TransformController controller, final Rectangle dirty);
+}
\ No newline at end of file
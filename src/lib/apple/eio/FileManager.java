@@ -29,13 +29,14 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 
+import lib.apple.monitor.Metrics;
+import lib.apple.monitor.StartupTrace;
+
 /**
  * Provides functionality to query and modify Mac-specific file attributes. The methods in this class are based on Finder
  * attributes. These attributes in turn are dependent on HFS and HFS+ file systems. As such, it is important to recognize
@@ -77,33 +78,36 @@ public final class FileManager {
 	private static Method _revealInFinder = null;
 	
 	static {
+		long init = StartupTrace.initializing();
 		try {
 			Path java = Paths.get("/System/Library/Java");
-			if (Files.exists(java, LinkOption.NOFOLLOW_LINKS)) {
+			if (StartupTrace.exists(FileManager.class, java)) {
 				ClassLoader sys_loader = ClassLoader.getSystemClassLoader();
 				if (URLClassLoader.class.isAssignableFrom(sys_loader.getClass())) {
 					Method addUrl = URLClassLoader.class.getDeclaredMethod("addURL", URL.class);
 					doPrivileged(addUrl);
-					addUrl.invoke(sys_loader, java.toUri().toURL());
+					StartupTrace.addURL(FileManager.class, addUrl, sys_loader, java.toUri().toURL());
 				}
 			}
 			
-			Class<?> fmClass = Class.forName("com.apple.eio.FileManager");
-			_osTypeToInt = fmClass.getMethod("OSTypeToInt", String.class);
-			_setFileTypeAndCreator = fmClass.getMethod("setFileTypeAndCreator", String.class, Integer.TYPE, Integer.TYPE);
-			_setFileType = fmClass.getMethod("setFileType", String.class, Integer.TYPE);
-			_setFileCreator = fmClass.getMethod("setFileCreator", String.class, Integer.TYPE);
-			_getFileType = fmClass.getMethod("getFileType", String.class);
-			_getFileCreator = fmClass.getMethod("getFileCreator", String.class);
-			_findFolder = fmClass.getMethod("findFolder", Short.TYPE, Integer.TYPE, Boolean.TYPE);
-			_openURL = fmClass.getMethod("openURL", String.class);
-			_getResourceFromBundle = fmClass.getMethod("getResourceFromBundle", String.class, String.class, String.class);
-			_getPathToApplicationBundle = fmClass.getMethod("getPathToApplicationBundle");
-			_moveToTrash = fmClass.getMethod("moveToTrash", File.class);
-			_revealInFinder = fmClass.getMethod("revealInFinder", File.class);
+			Class<?> fmClass = StartupTrace.forName(FileManager.class, "com.apple.eio.FileManager");
+			_osTypeToInt = StartupTrace.getMethod(FileManager.class, fmClass, "OSTypeToInt", String.class);
+			_setFileTypeAndCreator = StartupTrace.getMethod(FileManager.class, fmClass, "setFileTypeAndCreator", String.class, Integer.TYPE, Integer.TYPE);
+			_setFileType = StartupTrace.getMethod(FileManager.class, fmClass, "setFileType", String.class, Integer.TYPE);
+			_setFileCreator = StartupTrace.getMethod(FileManager.class, fmClass, "setFileCreator", String.class, Integer.TYPE);
+			_getFileType = StartupTrace.getMethod(FileManager.class, fmClass, "getFileType", String.class);
+			_getFileCreator = StartupTrace.getMethod(FileManager.class, fmClass, "getFileCreator", String.class);
+			_findFolder = StartupTrace.getMethod(FileManager.class, fmClass, "findFolder", Short.TYPE, Integer.TYPE, Boolean.TYPE);
+			_openURL = StartupTrace.getMethod(FileManager.class, fmClass, "openURL", String.class);
+			_getResourceFromBundle = StartupTrace.getMethod(FileManager.class, fmClass, "getResourceFromBundle", String.class, String.class, String.class);
+			_getPathToApplicationBundle = StartupTrace.getMethod(FileManager.class, fmClass, "getPathToApplicationBundle");
+			_moveToTrash = StartupTrace.getMethod(FileManager.class, fmClass, "moveToTrash", File.class);
+			_revealInFinder = StartupTrace.getMethod(FileManager.class, fmClass, "revealInFinder", File.class);
 		} catch (ClassNotFoundException e) {
 		} catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException | MalformedURLException e) {
 			throw new RuntimeException(e);
+		} finally {
+			StartupTrace.initialized(FileManager.class, init);
 		}
 	}
 	
@@ -407,10 +411,14 @@ public final class FileManager {
 	// Call the actual com.apple.eio.FileManager method.
 	private static Object call(Method method, Object... args) {
 		if (method == null) return null;
+		boolean timed = Metrics.isEnabled();
+		long start = (timed ? System.nanoTime() : 0L);
 		try {
 			return method.invoke(null, args);
 		} catch (IllegalAccessException | InvocationTargetException e) {
 			throw new RuntimeException(e);
+		} finally {
+			if (timed) Metrics.recordCall(method.getName(), System.nanoTime() - start);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,296 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every event dispatched by {@link lib.apple.eawt.Application} and {@link lib.apple.eawt.event.GestureUtilities}
+ * into a fixed-size, memory-mapped ring-buffer file.
+ *
+ * The file starts with a {@value #HEADER_SIZE} byte header followed by fixed {@value #RECORD_SIZE} byte records.
+ * Each record holds its sequence number at both ends so that a record that was being overwritten while the
+ * file was copied can be detected and skipped. Writers claim a slot with a single atomic increment and then only
+ * use absolute puts on the mapped buffer, so recording neither locks nor allocates.
+ *
+ * Recording is opt-in. It is started with {@link #start(Path, int)}, or at class initialization when the
+ * "lib.apple.monitor.trace" system property names the trace file (the number of records kept is taken from
+ * "lib.apple.monitor.trace.records"). Restarting on an existing trace file continues after its newest record.
+ */
+public final class EventTraceRecorder {
+	/**
+	 * Size of the file header in bytes.
+	 */
+	public static final int HEADER_SIZE = 64;
+	
+	/**
+	 * Size of a single record in bytes.
+	 */
+	public static final int RECORD_SIZE = 128;
+	
+	/**
+	 * Maximum number of UTF-8 bytes of text (for example a URI) kept per record. Longer text is truncated.
+	 */
+	public static final int MAX_TEXT_BYTES = 80;
+	
+	private static final int MAGIC = 0x4A4D5452; // "JMTR"
+	private static final int VERSION = 1;
+	private static final int DEFAULT_RECORDS = 65536;
+	
+	// Record layout
+	private static final int SEQUENCE = 0;
+	private static final int TIMESTAMP = 8;
+	private static final int LATENCY = 16;
+	private static final int TYPE = 24;
+	private static final int TEXT_LENGTH = 26;
+	private static final int COUNT = 28;
+	private static final int VALUE = 32;
+	private static final int TEXT = 40;
+	private static final int COMMIT = RECORD_SIZE - 8;
+	
+	private static final AtomicLong SEQUENCER = new AtomicLong();
+	
+	private static volatile Trace trace = null;
+	
+	static {
+		String file = System.getProperty("lib.apple.monitor.trace");
+		if (file != null && !file.isEmpty()) {
+			try {
+				start(Paths.get(file), Integer.getInteger("lib.apple.monitor.trace.records", DEFAULT_RECORDS).intValue());
+			} catch (IOException | RuntimeException e) {
+				// Leaves recording off rather than failing every event dispatched through the library
+				System.err.println("lib.apple.monitor.trace: cannot record into " + file + ": " + e);
+			}
+		}
+	}
+	
+	@Deprecated
+	private EventTraceRecorder() {
+		throw new InternalError();
+	}
+	
+	/**
+	 * Starts recording into the given file, replacing any trace that is currently being recorded.
+	 *
+	 * @param file the trace file, created if it does not exist
+	 * @param records the number of records the ring buffer keeps before overwriting the oldest
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public static synchronized void start(final Path file, final int records) throws IOException {
+		if (records <= 0) throw new IllegalArgumentException("records must be positive: " + records);
+		long size = HEADER_SIZE + (long) records * RECORD_SIZE;
+		if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("too many records: " + records);
+		
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			boolean reuse = (channel.size() == size);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			if (reuse) {
+				reuse = (buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+					&& buffer.getInt(8) == RECORD_SIZE && buffer.getInt(12) == records);
+			}
+			if (!reuse) {
+				for (int i = 0; i < size; i += 8) buffer.putLong(i, 0L);
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				buffer.putInt(8, RECORD_SIZE);
+				buffer.putInt(12, records);
+			}
+		}
+		
+		long newest = 0;
+		for (int i = 0; i < records; i++) {
+			int offset = HEADER_SIZE + i * RECORD_SIZE;
+			long seq = buffer.getLong(offset + SEQUENCE);
+			if (seq > newest && seq == buffer.getLong(offset + COMMIT)) newest = seq;
+		}
+		SEQUENCER.set(newest);
+		trace = new Trace(buffer, records);
+	}
+	
+	/**
+	 * Stops recording and flushes the trace file to the storage device.
+	 */
+	public static synchronized void stop() {
+		Trace t = trace;
+		trace = null;
+		if (t != null) t.buffer.force();
+	}
+	
+	/**
+	 * @return <code>true</code> if events are currently being recorded
+	 */
+	public static boolean isRecording() {
+		return trace != null;
+	}
+	
+	/**
+	 * Appends an event to the trace. Does nothing when no trace is being recorded.
+	 *
+	 * @param type the type of the event
+	 * @param start the {@link System#nanoTime()} at which the event was dispatched
+	 * @param latency the time spent in the handler, in nanoseconds
+	 * @param value the magnification or rotation of a gesture event, otherwise <code>0</code>
+	 * @param count the number of files of a files event, otherwise <code>0</code>
+	 * @param text the URI of an open URI event, or <code>null</code>
+	 */
+	public static void record(final EventType type, final long start, final long latency, final double value, final int count, final CharSequence text) {
+		Trace t = trace;
+		if (t == null) return;
+		
+		long seq = SEQUENCER.incrementAndGet();
+		int offset = HEADER_SIZE + (int) ((seq - 1) % t.records) * RECORD_SIZE;
+		ByteBuffer b = t.buffer;
+		b.putLong(offset + COMMIT, 0L);
+		b.putLong(offset + SEQUENCE, seq);
+		b.putLong(offset + TIMESTAMP, t.epochNanos + (start - t.startNanos));
+		b.putLong(offset + LATENCY, latency);
+		b.putShort(offset + TYPE, type.getCode());
+		b.putInt(offset + COUNT, count);
+		b.putDouble(offset + VALUE, value);
+		b.putShort(offset + TEXT_LENGTH, (short) (text == null ? 0 : putUtf8(b, offset + TEXT, text)));
+		b.putLong(offset + COMMIT, seq);
+	}
+	
+	/**
+	 * Reads all complete records of a trace file, oldest first.
+	 * The file may be read while it is still being recorded.
+	 *
+	 * @param file the trace file
+	 * @return the records of the trace
+	 * @throws IOException if the file cannot be read or is not a trace file
+	 */
+	public static List<TraceRecord> read(final Path file) throws IOException {
+		return read(file, Long.MIN_VALUE);
+	}
+	
+	/**
+	 * Reads the records of a trace file which were dispatched during the last <code>duration</code>, oldest first.
+	 *
+	 * @param file the trace file
+	 * @param duration how far back to read
+	 * @param unit the unit of <code>duration</code>
+	 * @return the records of the trace
+	 * @throws IOException if the file cannot be read or is not a trace file
+	 */
+	public static List<TraceRecord> readLast(final Path file, final long duration, final TimeUnit unit) throws IOException {
+		return read(file, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - unit.toNanos(duration));
+	}
+	
+	private static List<TraceRecord> read(Path file, long since) throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Not a trace file: " + file);
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+		}
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		int records = buffer.getInt(12);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE
+			|| buffer.capacity() != HEADER_SIZE + (long) records * RECORD_SIZE)
+			throw new IOException("Not a trace file: " + file);
+		
+		List<TraceRecord> result = new ArrayList<>();
+		byte[] text = new byte[MAX_TEXT_BYTES];
+		for (int i = 0; i < records; i++) {
+			int offset = HEADER_SIZE + i * RECORD_SIZE;
+			long seq = buffer.getLong(offset + SEQUENCE);
+			if (seq <= 0 || seq != buffer.getLong(offset + COMMIT)) continue;
+			long timestamp = buffer.getLong(offset + TIMESTAMP);
+			if (timestamp < since) continue;
+			
+			int length = Math.min(Math.max(buffer.getShort(offset + TEXT_LENGTH), 0), MAX_TEXT_BYTES);
+			buffer.position(offset + TEXT);
+			buffer.get(text, 0, length);
+			result.add(new TraceRecord(seq, timestamp, buffer.getLong(offset + LATENCY),
+				EventType.forCode(buffer.getShort(offset + TYPE)), buffer.getInt(offset + COUNT),
+				buffer.getDouble(offset + VALUE), new String(text, 0, length, StandardCharsets.UTF_8)));
+		}
+		Collections.sort(result, new Comparator<TraceRecord>() {
+			@Override
+			public int compare(TraceRecord a, TraceRecord b) {
+				return Long.compare(a.getSequence(), b.getSequence());
+			}
+		});
+		return result;
+	}
+	
+	// Encodes text as UTF-8 into the buffer without allocating, stopping before a character that does not fit.
+	private static int putUtf8(ByteBuffer b, int offset, CharSequence text) {
+		int n = 0;
+		for (int i = 0, len = text.length(); i < len; i++) {
+			int c = text.charAt(i);
+			if (Character.isHighSurrogate((char) c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+				if (n + 4 > MAX_TEXT_BYTES) break;
+				c = Character.toCodePoint((char) c, text.charAt(++i));
+				b.put(offset + n++, (byte) (0xF0 | (c >> 18)));
+				b.put(offset + n++, (byte) (0x80 | ((c >> 12) & 0x3F)));
+				b.put(offset + n++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+				b.put(offset + n++, (byte) (0x80 | (c & 0x3F)));
+			} else if (c < 0x80) {
+				if (n + 1 > MAX_TEXT_BYTES) break;
+				b.put(offset + n++, (byte) c);
+			} else if (c < 0x800) {
+				if (n + 2 > MAX_TEXT_BYTES) break;
+				b.put(offset + n++, (byte) (0xC0 | (c >> 6)));
+				b.put(offset + n++, (byte) (0x80 | (c & 0x3F)));
+			} else {
+				if (n + 3 > MAX_TEXT_BYTES) break;
+				b.put(offset + n++, (byte) (0xE0 | (c >> 12)));
+				b.put(offset + n++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+				b.put(offset + n++, (byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return n;
+	}
+	
+	// The mapped file together with the clock readings used to turn System.nanoTime() into wall-clock time.
+	private static final class Trace {
+		final MappedByteBuffer buffer;
+		final int records;
+		final long epochNanos;
+		final long startNanos;
+		
+		Trace(MappedByteBuffer buffer, int records) {
+			this.buffer = buffer;
+			this.records = records;
+			this.startNanos = System.nanoTime();
+			this.epochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The callbacks the library bridges from <code>com.apple.eawt</code> and <code>com.apple.eawt.event</code>.
+ *
+ * Each constant has a fixed code that is used in binary traces, so codes of existing constants must never change.
+ *
+ * @see EventTraceRecorder
+ */
+public enum EventType {
+	UNKNOWN(0, null, false),
+	
+	ABOUT(1, "handleAbout", false),
+	PREFERENCES(2, "handlePreferences", false),
+	OPEN_FILES(3, "openFiles", false),
+	PRINT_FILES(4, "printFiles", false),
+	OPEN_URI(5, "openURI", false),
+	QUIT(6, "handleQuitRequestWith", false),
+	APP_REOPENED(7, "appReOpened", false),
+	APP_RAISED_TO_FOREGROUND(8, "appRaisedToForeground", false),
+	APP_MOVED_TO_BACKGROUND(9, "appMovedToBackground", false),
+	APP_HIDDEN(10, "appHidden", false),
+	APP_UNHIDDEN(11, "appUnhidden", false),
+	USER_SESSION_ACTIVATED(12, "userSessionActivated", false),
+	USER_SESSION_DEACTIVATED(13, "userSessionDeactivated", false),
+	SCREEN_ABOUT_TO_SLEEP(14, "screenAboutToSleep", false),
+	SCREEN_AWOKE(15, "screenAwoke", false),
+	SYSTEM_ABOUT_TO_SLEEP(16, "systemAboutToSleep", false),
+	SYSTEM_AWOKE(17, "systemAwoke", false),
+	WINDOW_ENTERING_FULL_SCREEN(18, "windowEnteringFullScreen", false),
+	WINDOW_ENTERED_FULL_SCREEN(19, "windowEnteredFullScreen", false),
+	WINDOW_EXITING_FULL_SCREEN(20, "windowExitingFullScreen", false),
+	WINDOW_EXITED_FULL_SCREEN(21, "windowExitedFullScreen", false),
+	
+	// Deprecated ApplicationListener callbacks which do not share a name with a handler
+	OPEN_APPLICATION(40, "handleOpenApplication", false),
+	REOPEN_APPLICATION(41, "handleReOpenApplication", false),
+	OPEN_FILE(42, "handleOpenFile", false),
+	PRINT_FILE(43, "handlePrintFile", false),
+	LEGACY_QUIT(44, "handleQuit", false),
+	
+	GESTURE_BEGAN(64, "gestureBegan", true),
+	GESTURE_ENDED(65, "gestureEnded", true),
+	MAGNIFY(66, "magnify", true),
+	ROTATE(67, "rotate", true),
+	SWIPED_UP(68, "swipedUp", true),
+	SWIPED_DOWN(69, "swipedDown", true),
+	SWIPED_LEFT(70, "swipedLeft", true),
+	SWIPED_RIGHT(71, "swipedRight", true);
+	
+	private static final Map<String, EventType> BY_METHOD = new HashMap<>();
+	private static final EventType[] BY_CODE = new EventType[128];
+	
+	static {
+		for (EventType type : values()) {
+			if (type._method != null) BY_METHOD.put(type._method, type);
+			BY_CODE[type._code] = type;
+		}
+	}
+	
+	private final short _code;
+	private final String _method;
+	private final boolean _gesture;
+	
+	private EventType(int code, String method, boolean gesture) {
+		this._code = (short) code;
+		this._method = method;
+		this._gesture = gesture;
+	}
+	
+	/**
+	 * @return the code identifying this type in binary traces
+	 */
+	public short getCode() {
+		return this._code;
+	}
+	
+	/**
+	 * @return the name of the listener or handler method this type is delivered to
+	 */
+	public String getMethodName() {
+		return this._method;
+	}
+	
+	/**
+	 * @return <code>true</code> if this is a <code>com.apple.eawt.event</code> gesture callback
+	 */
+	public boolean isGesture() {
+		return this._gesture;
+	}
+	
+	/**
+	 * @param method the name of a bridged listener or handler method
+	 * @return the matching type, or {@link #UNKNOWN}
+	 */
+	public static EventType forMethod(final String method) {
+		EventType type = BY_METHOD.get(method);
+		return (type == null ? UNKNOWN : type);
+	}
+	
+	/**
+	 * @param code a code returned by {@link #getCode()}
+	 * @return the matching type, or {@link #UNKNOWN}
+	 */
+	public static EventType forCode(final int code) {
+		EventType type = (code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null);
+		return (type == null ? UNKNOWN : type);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attributes thread CPU time and allocated bytes to the handler and listener classes that
+ * {@link lib.apple.eawt.Application} and {@link lib.apple.eawt.event.GestureUtilities} dispatch to.
+ *
+ * Accounting is off by default. It is turned on with {@link #setEnabled(boolean)} or by setting the
+ * "lib.apple.monitor.accounting" system property to <code>true</code>. Time and allocations of a handler
+ * that triggers another dispatch on the same thread are attributed exclusively, so the outer handler is not
+ * charged for the inner one.
+ */
+public final class HandlerAccounting {
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final com.sun.management.ThreadMXBean SUN_THREADS =
+		(THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) THREADS : null);
+	
+	private static final ConcurrentMap<Class<?>, Counters> COUNTERS = new ConcurrentHashMap<>();
+	private static final ThreadLocal<Samples> SAMPLES = new ThreadLocal<Samples>() {
+		@Override
+		protected Samples initialValue() {
+			return new Samples();
+		}
+	};
+	
+	private static volatile boolean enabled = Boolean.getBoolean("lib.apple.monitor.accounting");
+	private static ScheduledExecutorService dumper = null;
+	
+	@Deprecated
+	private HandlerAccounting() {
+		throw new InternalError();
+	}
+	
+	/**
+	 * Turns accounting of handler invocations on or off. Figures already collected are kept.
+	 * @param enable <code>true</code> to account handler invocations, otherwise <code>false</code>
+	 */
+	public static void setEnabled(final boolean enable) {
+		enabled = enable;
+	}
+	
+	/**
+	 * @return <code>true</code> if handler invocations are currently accounted
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Marks the start of a handler invocation on the current thread.
+	 * Each call returning <code>true</code> must be paired with a call to {@link #end(Class)} on the same thread.
+	 *
+	 * @return <code>true</code> if the invocation is being accounted
+	 */
+	public static boolean begin() {
+		if (!enabled) return false;
+		SAMPLES.get().push(cpuTime(), allocatedBytes());
+		return true;
+	}
+	
+	/**
+	 * Marks the end of a handler invocation started with {@link #begin()} and charges it to the handler class.
+	 * @param handlerClass the class of the handler or listener that was invoked
+	 */
+	public static void end(final Class<?> handlerClass) {
+		Samples samples = SAMPLES.get();
+		if (samples.depth == 0) return;
+		samples.pop(cpuTime(), allocatedBytes());
+		
+		Counters counters = COUNTERS.get(handlerClass);
+		if (counters == null) {
+			counters = new Counters();
+			Counters prev = COUNTERS.putIfAbsent(handlerClass, counters);
+			if (prev != null) {
+				counters = prev;
+			}
+		}
+		counters.invocations.incrementAndGet();
+		if (samples.cpu >= 0) counters.cpuTime.addAndGet(samples.cpu);
+		if (samples.allocated >= 0) counters.allocatedBytes.addAndGet(samples.allocated);
+	}
+	
+	/**
+	 * @return a snapshot of the accounted handler classes, ordered by descending CPU time
+	 */
+	public static List<HandlerStatistics> getStatistics() {
+		List<HandlerStatistics> stats = new ArrayList<>(COUNTERS.size());
+		for (Map.Entry<Class<?>, Counters> entry : COUNTERS.entrySet()) {
+			stats.add(entry.getValue().snapshot(entry.getKey()));
+		}
+		Collections.sort(stats, new Comparator<HandlerStatistics>() {
+			@Override
+			public int compare(HandlerStatistics a, HandlerStatistics b) {
+				int c = Long.compare(b.getCpuTime(), a.getCpuTime());
+				return (c != 0 ? c : Long.compare(b.getAllocatedBytes(), a.getAllocatedBytes()));
+			}
+		});
+		return stats;
+	}
+	
+	/**
+	 * @param handlerClass the handler or listener class to look up
+	 * @return a snapshot of the figures accounted to the class, or <code>null</code> if it has not been invoked
+	 */
+	public static HandlerStatistics getStatistics(final Class<?> handlerClass) {
+		Counters counters = COUNTERS.get(handlerClass);
+		return (counters == null ? null : counters.snapshot(handlerClass));
+	}
+	
+	/**
+	 * Discards all figures collected so far.
+	 */
+	public static void reset() {
+		COUNTERS.clear();
+	}
+	
+	/**
+	 * Prints the current statistics, one handler class per line.
+	 * @param out the stream to print to
+	 */
+	public static void dump(final PrintStream out) {
+		List<HandlerStatistics> stats = getStatistics();
+		StringBuilder sb = new StringBuilder(64 + stats.size() * 96);
+		sb.append("Handler accounting (").append(stats.size()).append(" classes)");
+		for (HandlerStatistics s : stats) {
+			sb.append(System.lineSeparator()).append("  ").append(s);
+		}
+		out.println(sb);
+	}
+	
+	/**
+	 * Starts printing the current statistics at a fixed rate on a daemon thread.
+	 * Any dump started before is stopped first.
+	 *
+	 * @param period the time between two dumps
+	 * @param unit the unit of <code>period</code>
+	 * @param out the stream to print to
+	 */
+	public static synchronized void startPeriodicDump(final long period, final TimeUnit unit, final PrintStream out) {
+		if (period <= 0) throw new IllegalArgumentException("period must be positive: " + period);
+		stopPeriodicDump();
+		dumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "HandlerAccounting-dump");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		dumper.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				dump(out);
+			}
+		}, period, period, unit);
+	}
+	
+	/**
+	 * Stops the periodic dump started with {@link #startPeriodicDump(long, TimeUnit, PrintStream)}.
+	 */
+	public static synchronized void stopPeriodicDump() {
+		if (dumper != null) {
+			dumper.shutdownNow();
+			dumper = null;
+		}
+	}
+	
+	private static long cpuTime() {
+		if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled())
+			return THREADS.getCurrentThreadCpuTime();
+		return -1;
+	}
+	
+	private static long allocatedBytes() {
+		if (SUN_THREADS != null && SUN_THREADS.isThreadAllocatedMemorySupported() && SUN_THREADS.isThreadAllocatedMemoryEnabled())
+			return SUN_THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+	
+	private static final class Counters {
+		final AtomicLong invocations = new AtomicLong();
+		final AtomicLong cpuTime = new AtomicLong();
+		final AtomicLong allocatedBytes = new AtomicLong();
+		
+		HandlerStatistics snapshot(Class<?> handlerClass) {
+			return new HandlerStatistics(handlerClass, invocations.get(),
+				(cpuTime() < 0 ? -1 : cpuTime.get()), (allocatedBytes() < 0 ? -1 : allocatedBytes.get()));
+		}
+	}
+	
+	// Per-thread stack of the readings taken when each nested handler invocation started.
+	// The child arrays collect what nested invocations consumed so it can be subtracted from the parent.
+	private static final class Samples {
+		long[] startCpu = new long[4];
+		long[] startAllocated = new long[4];
+		long[] childCpu = new long[4];
+		long[] childAllocated = new long[4];
+		int depth = 0;
+		long cpu;
+		long allocated;
+		
+		void push(long cpuNow, long allocatedNow) {
+			if (depth == startCpu.length) {
+				startCpu = Arrays.copyOf(startCpu, depth * 2);
+				startAllocated = Arrays.copyOf(startAllocated, depth * 2);
+				childCpu = Arrays.copyOf(childCpu, depth * 2);
+				childAllocated = Arrays.copyOf(childAllocated, depth * 2);
+			}
+			startCpu[depth] = cpuNow;
+			startAllocated[depth] = allocatedNow;
+			childCpu[depth] = 0;
+			childAllocated[depth] = 0;
+			depth++;
+		}
+		
+		// Leaves the exclusive figures of the popped invocation in cpu and allocated.
+		void pop(long cpuNow, long allocatedNow) {
+			depth--;
+			long cpuTotal = (cpuNow < 0 || startCpu[depth] < 0 ? -1 : cpuNow - startCpu[depth]);
+			long allocatedTotal = (allocatedNow < 0 || startAllocated[depth] < 0 ? -1 : allocatedNow - startAllocated[depth]);
+			cpu = (cpuTotal < 0 ? -1 : Math.max(0, cpuTotal - childCpu[depth]));
+			allocated = (allocatedTotal < 0 ? -1 : Math.max(0, allocatedTotal - childAllocated[depth]));
+			if (depth > 0) {
+				if (cpuTotal > 0) childCpu[depth - 1] += cpuTotal;
+				if (allocatedTotal > 0) childAllocated[depth - 1] += allocatedTotal;
+			}
+		}
+	}
+}
\ No newline at end of file
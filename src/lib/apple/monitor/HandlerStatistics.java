@@ -0,0 +1,75 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+/**
+ * Snapshot of the CPU time and allocated bytes attributed to a single handler or listener class.
+ *
+ * @see HandlerAccounting#getStatistics()
+ */
+public final class HandlerStatistics {
+	private final Class<?> _handlerClass;
+	private final long _invocations;
+	private final long _cpuTime;
+	private final long _allocatedBytes;
+	
+	HandlerStatistics(Class<?> handlerClass, long invocations, long cpuTime, long allocatedBytes) {
+		this._handlerClass = handlerClass;
+		this._invocations = invocations;
+		this._cpuTime = cpuTime;
+		this._allocatedBytes = allocatedBytes;
+	}
+	
+	/**
+	 * @return the handler or listener class the figures are attributed to
+	 */
+	public Class<?> getHandlerClass() {
+		return this._handlerClass;
+	}
+	
+	/**
+	 * @return the number of accounted invocations of the handler
+	 */
+	public long getInvocationCount() {
+		return this._invocations;
+	}
+	
+	/**
+	 * @return the thread CPU time spent inside the handler, in nanoseconds, or <code>-1</code> if the JVM does not measure thread CPU time
+	 */
+	public long getCpuTime() {
+		return this._cpuTime;
+	}
+	
+	/**
+	 * @return the bytes allocated inside the handler, or <code>-1</code> if the JVM does not measure thread allocation
+	 */
+	public long getAllocatedBytes() {
+		return this._allocatedBytes;
+	}
+	
+	@Override
+	public String toString() {
+		return this._handlerClass.getName() + "[invocations=" + this._invocations
+			+ ", cpuTime=" + this._cpuTime + "ns, allocatedBytes=" + this._allocatedBytes + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies with four buckets per power of two, which bounds the error
+ * of a quantile to a quarter of its magnitude. Latencies of more than about eight seconds share the last bucket.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKETS = 4;
+	private static final int BUCKETS = 128;
+	
+	private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong _count = new AtomicLong();
+	private final AtomicLong _sum = new AtomicLong();
+	
+	/**
+	 * Adds a latency to the histogram.
+	 * @param nanos the latency, in nanoseconds
+	 */
+	public void record(final long nanos) {
+		long n = Math.max(nanos, 0L);
+		this._buckets.incrementAndGet(bucketOf(n));
+		this._count.incrementAndGet();
+		this._sum.addAndGet(n);
+	}
+	
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		return this._count.get();
+	}
+	
+	/**
+	 * @return the sum of the latencies recorded, in nanoseconds
+	 */
+	public long getSum() {
+		return this._sum.get();
+	}
+	
+	/**
+	 * @param quantile the quantile to estimate, between <code>0</code> and <code>1</code>
+	 * @return the upper bound of the bucket holding the quantile, in nanoseconds, or <code>0</code> if nothing was recorded
+	 */
+	public long getQuantile(final double quantile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += this._buckets.get(i);
+		}
+		if (total == 0) return 0;
+		long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this._buckets.get(i);
+			if (seen >= rank) return upperBoundOf(i);
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+	
+	/**
+	 * Forgets all recorded latencies.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this._buckets.set(i, 0);
+		}
+		this._count.set(0);
+		this._sum.set(0);
+	}
+	
+	private static int bucketOf(long n) {
+		if (n < SUB_BUCKETS) return (int) n;
+		int exp = 63 - Long.numberOfLeadingZeros(n);
+		int index = (exp - 1) * SUB_BUCKETS + (int) ((n >>> (exp - 2)) & (SUB_BUCKETS - 1));
+		return Math.min(index, BUCKETS - 1);
+	}
+	
+	private static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int exp = index / SUB_BUCKETS + 1;
+		long width = 1L << (exp - 2);
+		return (SUB_BUCKETS + index % SUB_BUCKETS) * width + width - 1;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Always-available counters behind {@link MetricsExporter}: events and handler latencies by {@link EventType},
+ * latencies of the calls {@link lib.apple.eio.FileManager} forwards to the native side, and the sizes of the
+ * listener registries kept by the library.
+ *
+ * Events and calls are only counted while metrics are enabled, with {@link #setEnabled(boolean)}, by starting
+ * the exporter, or by setting the "lib.apple.monitor.metrics" system property to <code>true</code>.
+ */
+public final class Metrics {
+	private static final EventType[] TYPES = EventType.values();
+	private static final AtomicLongArray EVENTS = new AtomicLongArray(TYPES.length);
+	private static final LatencyHistogram[] LATENCIES = new LatencyHistogram[TYPES.length];
+	private static final ConcurrentMap<String, Call> CALLS = new ConcurrentHashMap<>();
+	private static final List<Call> CALL_LIST = new CopyOnWriteArrayList<>();
+	private static final List<Registry> REGISTRIES = new CopyOnWriteArrayList<>();
+	
+	private static volatile boolean enabled = Boolean.getBoolean("lib.apple.monitor.metrics");
+	
+	static {
+		for (int i = 0; i < LATENCIES.length; i++) {
+			LATENCIES[i] = new LatencyHistogram();
+		}
+	}
+	
+	@Deprecated
+	private Metrics() {
+		throw new InternalError();
+	}
+	
+	/**
+	 * Turns counting of events and calls on or off. Figures already collected are kept.
+	 * @param enable <code>true</code> to count events and calls, otherwise <code>false</code>
+	 */
+	public static void setEnabled(final boolean enable) {
+		enabled = enable;
+	}
+	
+	/**
+	 * @return <code>true</code> if events and calls are currently counted
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Counts an event dispatched to a handler or listener.
+	 * @param type the type of the event
+	 * @param latency the time spent in the handler or listener, in nanoseconds
+	 */
+	public static void record(final EventType type, final long latency) {
+		if (!enabled) return;
+		int i = type.ordinal();
+		EVENTS.incrementAndGet(i);
+		LATENCIES[i].record(latency);
+	}
+	
+	/**
+	 * Counts a call forwarded to the native side.
+	 * @param method the name of the native method
+	 * @param latency the duration of the call, in nanoseconds
+	 */
+	public static void recordCall(final String method, final long latency) {
+		if (!enabled) return;
+		Call call = CALLS.get(method);
+		if (call == null) {
+			call = new Call(method);
+			Call prev = CALLS.putIfAbsent(method, call);
+			if (prev != null) {
+				call = prev;
+			} else {
+				CALL_LIST.add(call);
+			}
+		}
+		call.latency.record(latency);
+	}
+	
+	/**
+	 * Publishes the size of a listener registry. The map is only ever asked for its size.
+	 * @param owner the simple name of the class keeping the registry
+	 * @param name the name of the registry
+	 * @param registry the registry, which must be safe to query from any thread
+	 */
+	public static void registerRegistry(final String owner, final String name, final Map<?, ?> registry) {
+		REGISTRIES.add(new Registry(owner, name, registry));
+	}
+	
+	/**
+	 * @param type the type of the event
+	 * @return the number of events of the type counted so far
+	 */
+	public static long getEventCount(final EventType type) {
+		return EVENTS.get(type.ordinal());
+	}
+	
+	/**
+	 * @param type the type of the event
+	 * @return the latencies of the handlers of the type
+	 */
+	public static LatencyHistogram getHandlerLatency(final EventType type) {
+		return LATENCIES[type.ordinal()];
+	}
+	
+	/**
+	 * @return the latencies of the calls forwarded to the native side, by method name
+	 */
+	public static Map<String, LatencyHistogram> getCallLatencies() {
+		Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+		for (Call call : CALL_LIST) {
+			latencies.put(call.method, call.latency);
+		}
+		return latencies;
+	}
+	
+	/**
+	 * @return the names of the published registries as <code>owner.name</code>, mapped to their current size
+	 */
+	public static Map<String, Integer> getRegistrySizes() {
+		Map<String, Integer> sizes = new LinkedHashMap<>();
+		for (Registry registry : REGISTRIES) {
+			sizes.put(registry.owner + "." + registry.name, registry.map.size());
+		}
+		return sizes;
+	}
+	
+	/**
+	 * Forgets all counted events and calls.
+	 */
+	public static void reset() {
+		for (int i = 0; i < TYPES.length; i++) {
+			EVENTS.set(i, 0);
+			LATENCIES[i].reset();
+		}
+		for (Call call : CALL_LIST) {
+			call.latency.reset();
+		}
+	}
+	
+	// The exporter walks these lists by index, which does not allocate.
+	static List<Call> calls() {
+		return CALL_LIST;
+	}
+	
+	static List<Registry> registries() {
+		return REGISTRIES;
+	}
+	
+	static final class Call {
+		final String method;
+		final LatencyHistogram latency = new LatencyHistogram();
+		
+		Call(String method) {
+			this.method = method;
+		}
+	}
+	
+	static final class Registry {
+		final String owner;
+		final String name;
+		final Map<?, ?> map;
+		
+		Registry(String owner, String name, Map<?, ?> map) {
+			this.owner = owner;
+			this.name = name;
+			this.map = map;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,233 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the figures collected by {@link Metrics} in the Prometheus text format on the loopback interface,
+ * at <code>/metrics</code>.
+ *
+ * Scrapes are answered one at a time on a single daemon thread, and the response is rendered into a buffer
+ * which is kept between scrapes, so scraping does not create garbage in the library beyond what the
+ * HTTP server itself allocates. Gesture rates are meant to be derived from
+ * <code>lib_apple_events_total{gesture="true"}</code> with Prometheus' <code>rate()</code>.
+ */
+public final class MetricsExporter {
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+	private static final String[] QUANTILE_LABELS = { "0.5", "0.9", "0.99" };
+	
+	private static HttpServer server = null;
+	private static ExecutorService executor = null;
+	
+	@Deprecated
+	private MetricsExporter() {
+		throw new InternalError();
+	}
+	
+	/**
+	 * Starts serving metrics on the loopback interface, and enables {@link Metrics}.
+	 * @param port the port to listen on, or <code>0</code> for any free port
+	 * @return the address the exporter listens on
+	 * @throws IOException if the port cannot be bound
+	 * @throws IllegalStateException if the exporter is already running
+	 */
+	public static synchronized InetSocketAddress start(final int port) throws IOException {
+		if (server != null) throw new IllegalStateException("The metrics exporter is already running");
+		HttpServer s = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		s.createContext("/metrics", new ScrapeHandler());
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "lib.apple.monitor.MetricsExporter");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		s.setExecutor(executor);
+		s.start();
+		server = s;
+		Metrics.setEnabled(true);
+		return s.getAddress();
+	}
+	
+	/**
+	 * Stops serving metrics. {@link Metrics} stays enabled.
+	 */
+	public static synchronized void stop() {
+		if (server == null) return;
+		server.stop(0);
+		executor.shutdown();
+		server = null;
+		executor = null;
+	}
+	
+	/**
+	 * @return <code>true</code> if the exporter is running
+	 */
+	public static synchronized boolean isRunning() {
+		return (server != null);
+	}
+	
+	// Only ever called on the exporter's single thread.
+	private static final class ScrapeHandler implements HttpHandler {
+		private final EventType[] _types = EventType.values();
+		private byte[] _buf = new byte[16 * 1024];
+		private int _pos = 0;
+		
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				String method = exchange.getRequestMethod();
+				if (!"GET".equals(method) && !"HEAD".equals(method)) {
+					exchange.sendResponseHeaders(405, -1);
+					return;
+				}
+				this._pos = 0;
+				render();
+				exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+				if ("HEAD".equals(method)) {
+					exchange.sendResponseHeaders(200, -1);
+				} else {
+					exchange.sendResponseHeaders(200, this._pos);
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(this._buf, 0, this._pos);
+					}
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+		
+		private void render() {
+			help("lib_apple_events_total", "Events dispatched to handlers and listeners.", "counter");
+			for (EventType type : this._types) {
+				if (type == EventType.UNKNOWN) continue;
+				append("lib_apple_events_total{type=\"").append(type.name()).append("\",gesture=\"")
+					.append(type.isGesture() ? "true" : "false").append("\"} ").append(Metrics.getEventCount(type)).newLine();
+			}
+			
+			help("lib_apple_handler_latency_seconds", "Time spent in handlers and listeners.", "summary");
+			for (EventType type : this._types) {
+				LatencyHistogram latency = Metrics.getHandlerLatency(type);
+				if (latency.getCount() == 0) continue;
+				summary("lib_apple_handler_latency_seconds", "type", type.name(), latency);
+			}
+			
+			help("lib_apple_filemanager_call_latency_seconds", "Duration of calls forwarded to com.apple.eio.FileManager.", "summary");
+			List<Metrics.Call> calls = Metrics.calls();
+			for (int i = 0; i < calls.size(); i++) {
+				Metrics.Call call = calls.get(i);
+				summary("lib_apple_filemanager_call_latency_seconds", "method", call.method, call.latency);
+			}
+			
+			help("lib_apple_registry_size", "Listeners currently bridged to the native side.", "gauge");
+			List<Metrics.Registry> registries = Metrics.registries();
+			for (int i = 0; i < registries.size(); i++) {
+				Metrics.Registry registry = registries.get(i);
+				append("lib_apple_registry_size{owner=\"").append(registry.owner).append("\",registry=\"")
+					.append(registry.name).append("\"} ").append(registry.map.size()).newLine();
+			}
+		}
+		
+		private void help(String name, String help, String type) {
+			append("# HELP ").append(name).append(" ").append(help).newLine();
+			append("# TYPE ").append(name).append(" ").append(type).newLine();
+		}
+		
+		private void summary(String name, String label, String value, LatencyHistogram latency) {
+			for (int q = 0; q < QUANTILES.length; q++) {
+				append(name).append("{").append(label).append("=\"").append(value).append("\",quantile=\"")
+					.append(QUANTILE_LABELS[q]).append("\"} ").appendSeconds(latency.getQuantile(QUANTILES[q])).newLine();
+			}
+			append(name).append("_sum{").append(label).append("=\"").append(value).append("\"} ")
+				.appendSeconds(latency.getSum()).newLine();
+			append(name).append("_count{").append(label).append("=\"").append(value).append("\"} ")
+				.append(latency.getCount()).newLine();
+		}
+		
+		// Metric and label names and values are all ASCII.
+		private ScrapeHandler append(String s) {
+			int n = s.length();
+			ensure(n);
+			for (int i = 0; i < n; i++) {
+				this._buf[this._pos++] = (byte) s.charAt(i);
+			}
+			return this;
+		}
+		
+		private ScrapeHandler append(long v) {
+			ensure(20);
+			if (v < 0) {
+				this._buf[this._pos++] = '-';
+				v = -v;
+			}
+			int start = this._pos;
+			do {
+				this._buf[this._pos++] = (byte) ('0' + (v % 10));
+				v /= 10;
+			} while (v > 0);
+			for (int i = start, j = this._pos - 1; i < j; i++, j--) {
+				byte b = this._buf[i];
+				this._buf[i] = this._buf[j];
+				this._buf[j] = b;
+			}
+			return this;
+		}
+		
+		private ScrapeHandler appendSeconds(long nanos) {
+			append(nanos / 1000000000L);
+			ensure(10);
+			this._buf[this._pos++] = '.';
+			long fraction = nanos % 1000000000L;
+			for (long div = 100000000L; div > 0; div /= 10) {
+				this._buf[this._pos++] = (byte) ('0' + (fraction / div) % 10);
+			}
+			return this;
+		}
+		
+		private ScrapeHandler newLine() {
+			ensure(1);
+			this._buf[this._pos++] = '\n';
+			return this;
+		}
+		
+		private void ensure(int n) {
+			if (this._pos + n > this._buf.length) {
+				byte[] buf = new byte[Math.max(this._buf.length * 2, this._pos + n)];
+				System.arraycopy(this._buf, 0, buf, 0, this._pos);
+				this._buf = buf;
+			}
+		}
+	}
+}
\ No newline at end of file
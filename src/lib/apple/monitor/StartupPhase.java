@@ -0,0 +1,123 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+/**
+ * A single timed step of a library class's static initializer.
+ *
+ * @see StartupTrace#getPhases()
+ */
+public final class StartupPhase {
+	/**
+	 * The kinds of steps the static initializers perform while binding to the native classes.
+	 */
+	public static enum Kind {
+		/**
+		 * The check for the <code>/System/Library/Java</code> directory.
+		 */
+		STAT,
+		
+		/**
+		 * Adding <code>/System/Library/Java</code> to the system class loader.
+		 */
+		ADD_URL,
+		
+		/**
+		 * Loading a native class.
+		 */
+		FOR_NAME,
+		
+		/**
+		 * Looking up a method of a native class.
+		 */
+		GET_METHOD,
+		
+		/**
+		 * The whole static initializer, including the other steps.
+		 */
+		INITIALIZER
+	}
+	
+	private final String _owner;
+	private final Kind _kind;
+	private final String _target;
+	private final long _startTime;
+	private final long _duration;
+	private final boolean _succeeded;
+	
+	StartupPhase(String owner, Kind kind, String target, long startTime, long duration, boolean succeeded) {
+		this._owner = owner;
+		this._kind = kind;
+		this._target = target;
+		this._startTime = startTime;
+		this._duration = duration;
+		this._succeeded = succeeded;
+	}
+	
+	/**
+	 * @return the name of the library class whose initializer performed the step
+	 */
+	public String getOwner() {
+		return this._owner;
+	}
+	
+	/**
+	 * @return the kind of step
+	 */
+	public Kind getKind() {
+		return this._kind;
+	}
+	
+	/**
+	 * @return the path, class or method the step worked on
+	 */
+	public String getTarget() {
+		return this._target;
+	}
+	
+	/**
+	 * @return when the step started, in nanoseconds since the first traced static initializer started
+	 */
+	public long getStartTime() {
+		return this._startTime;
+	}
+	
+	/**
+	 * @return how long the step took, in nanoseconds
+	 */
+	public long getDuration() {
+		return this._duration;
+	}
+	
+	/**
+	 * @return <code>false</code> if the step threw, for example because the native class does not exist
+	 */
+	public boolean isSucceeded() {
+		return this._succeeded;
+	}
+	
+	@Override
+	public String toString() {
+		return this._owner + " " + this._kind + " " + this._target + " +" + this._startTime + "ns "
+			+ this._duration + "ns" + (this._succeeded ? "" : " (failed)");
+	}
+}
\ No newline at end of file
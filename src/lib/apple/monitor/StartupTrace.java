@@ -0,0 +1,189 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the steps the static initializers of {@link lib.apple.eawt.Application}, {@link lib.apple.eio.FileManager},
+ * {@link lib.apple.eawt.event.GestureUtilities} and {@link lib.apple.eawt.FullScreenUtilities} perform while binding
+ * to the native classes, so that their share of the application's start-up can be told apart from the first call into them.
+ *
+ * The initializers perform their steps through the methods of this class, which are not meant to be called otherwise.
+ * Tracing costs two calls to {@link System#nanoTime()} per step and is always on; at most {@value #MAX_PHASES} steps are kept.
+ */
+public final class StartupTrace {
+	/**
+	 * The number of steps kept.
+	 */
+	public static final int MAX_PHASES = 1024;
+	
+	// Initialized by the first call to initializing(), before any step is timed.
+	private static final long ORIGIN = System.nanoTime();
+	private static final List<StartupPhase> PHASES = new ArrayList<>();
+	
+	@Deprecated
+	private StartupTrace() {
+		throw new InternalError();
+	}
+	
+	/**
+	 * @return the steps traced so far, in the order they finished
+	 */
+	public static List<StartupPhase> getPhases() {
+		synchronized (PHASES) {
+			return new ArrayList<>(PHASES);
+		}
+	}
+	
+	/**
+	 * @param owner the library class to look up
+	 * @return the time spent in the static initializer of the class, in nanoseconds, or <code>-1</code> if it has not finished
+	 */
+	public static long getInitializerTime(final Class<?> owner) {
+		synchronized (PHASES) {
+			for (StartupPhase phase : PHASES) {
+				if (phase.getKind() == StartupPhase.Kind.INITIALIZER && phase.getOwner().equals(owner.getName()))
+					return phase.getDuration();
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Prints the steps traced so far, one per line.
+	 * @param out the stream to print to
+	 */
+	public static void dump(final PrintStream out) {
+		for (StartupPhase phase : getPhases()) {
+			out.println(phase);
+		}
+	}
+	
+	/**
+	 * Marks the start of a static initializer.
+	 * @return the start time to pass to {@link #initialized(Class, long)}
+	 */
+	public static long initializing() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Marks the end of a static initializer started with {@link #initializing()}.
+	 * @param owner the class being initialized
+	 * @param start the value returned by {@link #initializing()}
+	 */
+	public static void initialized(final Class<?> owner, final long start) {
+		record(owner, StartupPhase.Kind.INITIALIZER, owner.getName(), start, true);
+	}
+	
+	/**
+	 * Checks for a directory without following links, and traces the check.
+	 * @param owner the class being initialized
+	 * @param path the path to check
+	 * @return <code>true</code> if the path exists
+	 */
+	public static boolean exists(final Class<?> owner, final Path path) {
+		long start = System.nanoTime();
+		boolean exists = Files.exists(path, LinkOption.NOFOLLOW_LINKS);
+		record(owner, StartupPhase.Kind.STAT, path.toString(), start, true);
+		return exists;
+	}
+	
+	/**
+	 * Adds a URL to a class loader through its accessible <code>addURL</code> method, and traces the call.
+	 * @param owner the class being initialized
+	 * @param addUrl the accessible <code>URLClassLoader.addURL</code> method
+	 * @param loader the class loader to add the URL to
+	 * @param url the URL to add
+	 * @throws IllegalAccessException if the method is not accessible
+	 * @throws InvocationTargetException if the method throws
+	 */
+	public static void addURL(final Class<?> owner, final Method addUrl, final ClassLoader loader, final URL url)
+	throws IllegalAccessException, InvocationTargetException {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			addUrl.invoke(loader, url);
+			succeeded = true;
+		} finally {
+			record(owner, StartupPhase.Kind.ADD_URL, url.toString(), start, succeeded);
+		}
+	}
+	
+	/**
+	 * Loads a class through the class loader of the class being initialized, and traces the lookup.
+	 * @param owner the class being initialized
+	 * @param name the fully qualified name of the class to load
+	 * @return the loaded and initialized class
+	 * @throws ClassNotFoundException if the class does not exist
+	 */
+	public static Class<?> forName(final Class<?> owner, final String name) throws ClassNotFoundException {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			Class<?> c = Class.forName(name, true, owner.getClassLoader());
+			succeeded = true;
+			return c;
+		} finally {
+			record(owner, StartupPhase.Kind.FOR_NAME, name, start, succeeded);
+		}
+	}
+	
+	/**
+	 * Looks up a public method, and traces the lookup.
+	 * @param owner the class being initialized
+	 * @param c the class declaring or inheriting the method
+	 * @param name the name of the method
+	 * @param types the parameter types of the method
+	 * @return the method
+	 * @throws NoSuchMethodException if the method does not exist
+	 */
+	public static Method getMethod(final Class<?> owner, final Class<?> c, final String name, final Class<?>... types)
+	throws NoSuchMethodException {
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			Method m = c.getMethod(name, types);
+			succeeded = true;
+			return m;
+		} finally {
+			record(owner, StartupPhase.Kind.GET_METHOD, c.getName() + "." + name, start, succeeded);
+		}
+	}
+	
+	private static void record(Class<?> owner, StartupPhase.Kind kind, String target, long start, boolean succeeded) {
+		long duration = System.nanoTime() - start;
+		synchronized (PHASES) {
+			if (PHASES.size() < MAX_PHASES)
+				PHASES.add(new StartupPhase(owner.getName(), kind, target, start - ORIGIN, duration, succeeded));
+		}
+	}
+}
\ No newline at end of file
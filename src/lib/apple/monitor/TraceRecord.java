@@ -0,0 +1,109 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.monitor;
+
+/**
+ * A single event read back from a trace written by {@link EventTraceRecorder}.
+ *
+ * @see EventTraceRecorder#read(java.nio.file.Path)
+ */
+public final class TraceRecord {
+	private final long _sequence;
+	private final long _timestamp;
+	private final long _latency;
+	private final EventType _type;
+	private final int _count;
+	private final double _value;
+	private final String _text;
+	
+	TraceRecord(long sequence, long timestamp, long latency, EventType type, int count, double value, String text) {
+		this._sequence = sequence;
+		this._timestamp = timestamp;
+		this._latency = latency;
+		this._type = type;
+		this._count = count;
+		this._value = value;
+		this._text = text;
+	}
+	
+	/**
+	 * @return the position of the event in the trace, starting at 1
+	 */
+	public long getSequence() {
+		return this._sequence;
+	}
+	
+	/**
+	 * @return when the event was dispatched, in nanoseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return this._timestamp;
+	}
+	
+	/**
+	 * @return when the event was dispatched, in milliseconds since the epoch
+	 */
+	public long getTimeMillis() {
+		return this._timestamp / 1000000L;
+	}
+	
+	/**
+	 * @return the time spent in the handler, in nanoseconds
+	 */
+	public long getLatency() {
+		return this._latency;
+	}
+	
+	/**
+	 * @return the type of the event
+	 */
+	public EventType getType() {
+		return this._type;
+	}
+	
+	/**
+	 * @return the number of files of a files event, otherwise <code>0</code>
+	 */
+	public int getCount() {
+		return this._count;
+	}
+	
+	/**
+	 * @return the magnification or rotation of a gesture event, otherwise <code>0</code>
+	 */
+	public double getValue() {
+		return this._value;
+	}
+	
+	/**
+	 * @return the (possibly truncated) URI of an open URI event, otherwise an empty string
+	 */
+	public String getText() {
+		return this._text;
+	}
+	
+	@Override
+	public String toString() {
+		return "#" + this._sequence + " " + this._type + " @" + this._timestamp + "ns latency=" + this._latency
+			+ "ns count=" + this._count + " value=" + this._value + (this._text.isEmpty() ? "" : " text=" + this._text);
+	}
+}
\ No newline at end of file
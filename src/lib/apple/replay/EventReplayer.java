@@ -0,0 +1,477 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.awt.EventQueue;
+import java.awt.Window;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.JComponent;
+
+import lib.apple.eawt.AboutHandler;
+import lib.apple.eawt.AppEventListener;
+import lib.apple.eawt.AppForegroundListener;
+import lib.apple.eawt.AppHiddenListener;
+import lib.apple.eawt.AppReOpenedListener;
+import lib.apple.eawt.ApplicationListener;
+import lib.apple.eawt.FullScreenListener;
+import lib.apple.eawt.OpenFilesHandler;
+import lib.apple.eawt.OpenURIHandler;
+import lib.apple.eawt.PreferencesHandler;
+import lib.apple.eawt.PrintFilesHandler;
+import lib.apple.eawt.QuitHandler;
+import lib.apple.eawt.ScreenSleepListener;
+import lib.apple.eawt.SystemSleepListener;
+import lib.apple.eawt.UserSessionListener;
+import lib.apple.eawt.event.GestureListener;
+import lib.apple.eawt.event.GesturePhaseListener;
+import lib.apple.eawt.event.MagnificationListener;
+import lib.apple.eawt.event.RotationListener;
+import lib.apple.eawt.event.SwipeListener;
+import lib.apple.monitor.EventTraceRecorder;
+import lib.apple.monitor.EventType;
+import lib.apple.monitor.TraceRecord;
+
+/**
+ * Feeds a recorded stream of app and gesture events back through the bridges registered by
+ * {@link lib.apple.eawt.Application}, {@link lib.apple.eawt.FullScreenUtilities} and {@link lib.apple.eawt.event.GestureUtilities}.
+ *
+ * Replaying requires the local stand-in for <code>com.apple.eawt</code>. It is selected by setting the
+ * {@value #STAND_IN_PROPERTY} system property to <code>true</code> before any of the library classes above are
+ * initialized, either on the command line or with {@link #installStandIn()}. The application then registers its
+ * handlers as usual, and {@link #replay(Pacing)} calls them through the same proxies the native side would call.
+ *
+ * A trace only keeps the number of files of a files event, so placeholder files are handed to the handler instead of
+ * the original ones. URIs are replayed as far as they were kept by the trace. Quit requests are answered into a
+ * {@link StandInQuitResponse} and never exit the JVM.
+ *
+ * @see EventTraceRecorder
+ */
+@SuppressWarnings("deprecation")
+public final class EventReplayer {
+	/**
+	 * The system property which makes the library bind to the stand-in instead of <code>com.apple.eawt</code>.
+	 */
+	public static final String STAND_IN_PROPERTY = "lib.apple.replay.standIn";
+	
+	/**
+	 * How the delay between two recorded events is reproduced.
+	 */
+	public static enum Pacing {
+		/**
+		 * Waits between events as long as the recorded session did.
+		 */
+		ORIGINAL,
+		
+		/**
+		 * Dispatches each event as soon as the previous one has been handled.
+		 */
+		AS_FAST_AS_POSSIBLE
+	}
+	
+	private final List<TraceRecord> _records;
+	private File _placeholderDirectory = new File(System.getProperty("java.io.tmpdir"));
+	private JComponent _gestureTarget = null;
+	private boolean _onEventDispatchThread = false;
+	
+	/**
+	 * @param records the events to replay, oldest first
+	 */
+	public EventReplayer(final List<TraceRecord> records) {
+		this._records = new ArrayList<>(records);
+	}
+	
+	/**
+	 * Creates a replayer for all events of a trace file written by {@link EventTraceRecorder}.
+	 *
+	 * @param trace the trace file
+	 * @return a replayer for the events of the trace
+	 * @throws IOException if the trace cannot be read
+	 */
+	public static EventReplayer load(final Path trace) throws IOException {
+		return new EventReplayer(EventTraceRecorder.read(trace));
+	}
+	
+	/**
+	 * Binds the library to the stand-in for <code>com.apple.eawt</code>.
+	 *
+	 * @throws IllegalStateException if {@link lib.apple.eawt.Application} was already bound to the native classes
+	 */
+	public static synchronized void installStandIn() {
+		System.setProperty(STAND_IN_PROPERTY, "true");
+		ClassLoader loader = EventReplayer.class.getClassLoader();
+		try {
+			Class.forName("lib.apple.eawt.Application", true, loader);
+			Class.forName("lib.apple.eawt.FullScreenUtilities", true, loader);
+			Class.forName("lib.apple.eawt.event.GestureUtilities", true, loader);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+		if (!StandInApplication.isBound())
+			throw new IllegalStateException("lib.apple.eawt.Application was initialized before the stand-in was installed");
+	}
+	
+	/**
+	 * Sets the directory the placeholder files of replayed files events are named after. The files are never created.
+	 * @param directory the parent of the placeholder files
+	 */
+	public void setPlaceholderDirectory(final File directory) {
+		this._placeholderDirectory = directory;
+	}
+	
+	/**
+	 * Restricts gesture events to the listeners of a single component.
+	 * By default gesture events are delivered to the listeners of every component.
+	 *
+	 * @param component the component to deliver gesture events to, or <code>null</code> for all components
+	 */
+	public void setGestureTarget(final JComponent component) {
+		this._gestureTarget = component;
+	}
+	
+	/**
+	 * Selects the thread events are dispatched on. By default they are dispatched on the thread calling
+	 * {@link #replay(Pacing)}, which measures the dispatch path alone.
+	 *
+	 * @param onEventDispatchThread <code>true</code> to dispatch each event on the AWT Event Dispatch thread like the native side does
+	 */
+	public void setDispatchOnEventDispatchThread(final boolean onEventDispatchThread) {
+		this._onEventDispatchThread = onEventDispatchThread;
+	}
+	
+	/**
+	 * Replays all events on the calling thread.
+	 *
+	 * @param pacing how the delay between two events is reproduced
+	 * @return what happened during the replay
+	 * @throws InterruptedException if the current thread is interrupted while waiting for the next event
+	 * @throws IllegalStateException if the stand-in is not installed
+	 */
+	public ReplayResult replay(final Pacing pacing) throws InterruptedException {
+		if (!StandInApplication.isBound()) throw new IllegalStateException("The stand-in is not installed");
+		
+		int replayed = 0, skipped = 0, failed = 0;
+		long dispatchTime = 0, maxDispatchTime = 0;
+		Throwable firstFailure = null;
+		List<StandInQuitResponse> quitResponses = new ArrayList<>();
+		
+		long begin = System.nanoTime();
+		long origin = (this._records.isEmpty() ? 0 : this._records.get(0).getTimestamp());
+		for (TraceRecord record : this._records) {
+			if (pacing == Pacing.ORIGINAL) {
+				long due = begin + (record.getTimestamp() - origin);
+				for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+					LockSupport.parkNanos(wait);
+					if (Thread.interrupted()) throw new InterruptedException();
+				}
+			}
+			
+			Dispatch dispatch = new Dispatch(record, quitResponses);
+			long start = System.nanoTime();
+			try {
+				if (this._onEventDispatchThread && !EventQueue.isDispatchThread()) {
+					EventQueue.invokeAndWait(dispatch);
+				} else {
+					dispatch.run();
+				}
+			} catch (InvocationTargetException e) {
+				dispatch.failure = e.getCause();
+			} catch (RuntimeException e) {
+				dispatch.failure = e;
+			}
+			long time = System.nanoTime() - start;
+			
+			if (dispatch.failure != null) {
+				failed++;
+				if (firstFailure == null) firstFailure = dispatch.failure;
+			} else if (dispatch.delivered) {
+				replayed++;
+				dispatchTime += time;
+				maxDispatchTime = Math.max(maxDispatchTime, time);
+			} else {
+				skipped++;
+			}
+		}
+		return new ReplayResult(replayed, skipped, failed, System.nanoTime() - begin, dispatchTime, maxDispatchTime,
+			firstFailure, quitResponses);
+	}
+	
+	// Builds the stand-in event of a record up front, so that only the dispatch itself is timed.
+	private final class Dispatch implements Runnable {
+		final TraceRecord record;
+		final List<StandInQuitResponse> quitResponses;
+		final StandInEvent event;
+		boolean delivered = false;
+		Throwable failure = null;
+		
+		Dispatch(TraceRecord record, List<StandInQuitResponse> quitResponses) {
+			this.record = record;
+			this.quitResponses = quitResponses;
+			this.event = createEvent(record);
+		}
+		
+		@Override
+		public void run() {
+			if (this.event != null) {
+				EventType type = this.record.getType();
+				if (type.isGesture()) {
+					this.delivered = dispatchGesture(type, this.event);
+				} else {
+					this.delivered = dispatchApp(type, this.event, this.quitResponses);
+				}
+			}
+		}
+	}
+	
+	private StandInEvent createEvent(TraceRecord record) {
+		StandInEvent event = new StandInEvent(this);
+		switch (record.getType()) {
+			case OPEN_FILES:
+			case PRINT_FILES:
+				File[] files = new File[record.getCount()];
+				for (int i = 0; i < files.length; i++)
+					files[i] = new File(this._placeholderDirectory, "replay-" + record.getSequence() + "-" + i);
+				return event.withFiles(Collections.unmodifiableList(Arrays.asList(files)));
+			case OPEN_FILE:
+			case PRINT_FILE:
+				return event.withFilename(record.getText().isEmpty() ? null : record.getText());
+			case OPEN_URI:
+				try {
+					return event.withURI(new URI(record.getText()));
+				} catch (Exception e) {
+					return null; // Truncated beyond repair
+				}
+			case MAGNIFY:
+				return event.withMagnification(record.getValue());
+			case ROTATE:
+				return event.withRotation(record.getValue());
+			case UNKNOWN:
+				return null;
+			default:
+				return event;
+		}
+	}
+	
+	private static boolean dispatchApp(EventType type, StandInEvent event, List<StandInQuitResponse> quitResponses) {
+		StandInApplication app = StandInApplication.instance();
+		switch (type) {
+			case ABOUT:
+				AboutHandler about = app.getAboutHandler();
+				if (about != null) about.handleAbout(event);
+				return (about != null) | dispatchLegacy(type, event);
+			case PREFERENCES:
+				PreferencesHandler preferences = app.getPreferencesHandler();
+				if (preferences != null) preferences.handlePreferences(event);
+				return (preferences != null) | dispatchLegacy(type, event);
+			case OPEN_FILES:
+				OpenFilesHandler openFiles = app.getOpenFilesHandler();
+				if (openFiles != null) openFiles.openFiles(event);
+				return (openFiles != null);
+			case PRINT_FILES:
+				PrintFilesHandler printFiles = app.getPrintFilesHandler();
+				if (printFiles != null) printFiles.printFiles(event);
+				return (printFiles != null);
+			case OPEN_URI:
+				OpenURIHandler openURI = app.getOpenURIHandler();
+				if (openURI != null) openURI.openURI(event);
+				return (openURI != null);
+			case QUIT:
+				QuitHandler quit = app.getQuitHandler();
+				if (quit != null) {
+					StandInQuitResponse response = new StandInQuitResponse();
+					quitResponses.add(response);
+					quit.handleQuitRequestWith(event, response);
+				}
+				return (quit != null);
+			case WINDOW_ENTERING_FULL_SCREEN:
+			case WINDOW_ENTERED_FULL_SCREEN:
+			case WINDOW_EXITING_FULL_SCREEN:
+			case WINDOW_EXITED_FULL_SCREEN:
+				return dispatchFullScreen(type, event);
+			case OPEN_APPLICATION:
+			case REOPEN_APPLICATION:
+			case OPEN_FILE:
+			case PRINT_FILE:
+			case LEGACY_QUIT:
+				return dispatchLegacy(type, event);
+			default:
+				break;
+		}
+		
+		boolean delivered = false;
+		for (AppEventListener l : app.getAppEventListeners()) {
+			switch (type) {
+				case APP_REOPENED:
+					if (l instanceof AppReOpenedListener) {
+						((AppReOpenedListener) l).appReOpened(event);
+						delivered = true;
+					}
+					break;
+				case APP_RAISED_TO_FOREGROUND:
+				case APP_MOVED_TO_BACKGROUND:
+					if (l instanceof AppForegroundListener) {
+						if (type == EventType.APP_RAISED_TO_FOREGROUND)
+							((AppForegroundListener) l).appRaisedToForeground(event);
+						else
+							((AppForegroundListener) l).appMovedToBackground(event);
+						delivered = true;
+					}
+					break;
+				case APP_HIDDEN:
+				case APP_UNHIDDEN:
+					if (l instanceof AppHiddenListener) {
+						if (type == EventType.APP_HIDDEN)
+							((AppHiddenListener) l).appHidden(event);
+						else
+							((AppHiddenListener) l).appUnhidden(event);
+						delivered = true;
+					}
+					break;
+				case USER_SESSION_ACTIVATED:
+				case USER_SESSION_DEACTIVATED:
+					if (l instanceof UserSessionListener) {
+						if (type == EventType.USER_SESSION_ACTIVATED)
+							((UserSessionListener) l).userSessionActivated(event);
+						else
+							((UserSessionListener) l).userSessionDeactivated(event);
+						delivered = true;
+					}
+					break;
+				case SCREEN_ABOUT_TO_SLEEP:
+				case SCREEN_AWOKE:
+					if (l instanceof ScreenSleepListener) {
+						if (type == EventType.SCREEN_ABOUT_TO_SLEEP)
+							((ScreenSleepListener) l).screenAboutToSleep(event);
+						else
+							((ScreenSleepListener) l).screenAwoke(event);
+						delivered = true;
+					}
+					break;
+				case SYSTEM_ABOUT_TO_SLEEP:
+				case SYSTEM_AWOKE:
+					if (l instanceof SystemSleepListener) {
+						if (type == EventType.SYSTEM_ABOUT_TO_SLEEP)
+							((SystemSleepListener) l).systemAboutToSleep(event);
+						else
+							((SystemSleepListener) l).systemAwoke(event);
+						delivered = true;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return delivered;
+	}
+	
+	private static boolean dispatchLegacy(EventType type, StandInEvent event) {
+		List<ApplicationListener> listeners = StandInApplication.instance().getApplicationListeners();
+		for (ApplicationListener l : listeners) {
+			switch (type) {
+				case ABOUT: l.handleAbout(event); break;
+				case PREFERENCES: l.handlePreferences(event); break;
+				case OPEN_APPLICATION: l.handleOpenApplication(event); break;
+				case REOPEN_APPLICATION: l.handleReOpenApplication(event); break;
+				case OPEN_FILE: l.handleOpenFile(event); break;
+				case PRINT_FILE: l.handlePrintFile(event); break;
+				case LEGACY_QUIT: l.handleQuit(event); break;
+				default: return false;
+			}
+		}
+		return !listeners.isEmpty();
+	}
+	
+	private static boolean dispatchFullScreen(EventType type, StandInEvent event) {
+		boolean delivered = false;
+		for (Map.Entry<Window, List<FullScreenListener>> entry : StandInFullScreenUtilities.getListeners().entrySet()) {
+			event.withWindow(entry.getKey());
+			for (FullScreenListener l : entry.getValue()) {
+				switch (type) {
+					case WINDOW_ENTERING_FULL_SCREEN: l.windowEnteringFullScreen(event); break;
+					case WINDOW_ENTERED_FULL_SCREEN: l.windowEnteredFullScreen(event); break;
+					case WINDOW_EXITING_FULL_SCREEN: l.windowExitingFullScreen(event); break;
+					default: l.windowExitedFullScreen(event); break;
+				}
+				delivered = true;
+			}
+		}
+		return delivered;
+	}
+	
+	private boolean dispatchGesture(EventType type, StandInEvent event) {
+		List<JComponent> components = (this._gestureTarget != null
+			? Collections.singletonList(this._gestureTarget) : StandInGestureUtilities.getComponents());
+		boolean delivered = false;
+		for (JComponent component : components) {
+			List<GestureListener> listeners = StandInGestureUtilities.getListeners(component);
+			if (listeners == null) continue;
+			for (GestureListener l : listeners) {
+				if (event.isConsumed()) return delivered;
+				switch (type) {
+					case GESTURE_BEGAN:
+					case GESTURE_ENDED:
+						if (l instanceof GesturePhaseListener) {
+							if (type == EventType.GESTURE_BEGAN)
+								((GesturePhaseListener) l).gestureBegan(event);
+							else
+								((GesturePhaseListener) l).gestureEnded(event);
+							delivered = true;
+						}
+						break;
+					case MAGNIFY:
+						if (l instanceof MagnificationListener) {
+							((MagnificationListener) l).magnify(event);
+							delivered = true;
+						}
+						break;
+					case ROTATE:
+						if (l instanceof RotationListener) {
+							((RotationListener) l).rotate(event);
+							delivered = true;
+						}
+						break;
+					default:
+						if (l instanceof SwipeListener) {
+							SwipeListener sl = (SwipeListener) l;
+							if (type == EventType.SWIPED_UP) sl.swipedUp(event);
+							else if (type == EventType.SWIPED_DOWN) sl.swipedDown(event);
+							else if (type == EventType.SWIPED_LEFT) sl.swipedLeft(event);
+							else sl.swipedRight(event);
+							delivered = true;
+						}
+						break;
+				}
+			}
+		}
+		return delivered;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a single {@link EventReplayer#replay(EventReplayer.Pacing)} run.
+ */
+public final class ReplayResult {
+	private final int _replayed;
+	private final int _skipped;
+	private final int _failed;
+	private final long _elapsedTime;
+	private final long _dispatchTime;
+	private final long _maxDispatchTime;
+	private final Throwable _firstFailure;
+	private final List<StandInQuitResponse> _quitResponses;
+	
+	ReplayResult(int replayed, int skipped, int failed, long elapsedTime, long dispatchTime, long maxDispatchTime,
+	Throwable firstFailure, List<StandInQuitResponse> quitResponses) {
+		this._replayed = replayed;
+		this._skipped = skipped;
+		this._failed = failed;
+		this._elapsedTime = elapsedTime;
+		this._dispatchTime = dispatchTime;
+		this._maxDispatchTime = maxDispatchTime;
+		this._firstFailure = firstFailure;
+		this._quitResponses = Collections.unmodifiableList(quitResponses);
+	}
+	
+	/**
+	 * @return the number of events delivered to at least one handler or listener
+	 */
+	public int getReplayed() {
+		return this._replayed;
+	}
+	
+	/**
+	 * @return the number of events nobody was registered for, or which could not be rebuilt from the trace
+	 */
+	public int getSkipped() {
+		return this._skipped;
+	}
+	
+	/**
+	 * @return the number of events whose handler threw an exception
+	 */
+	public int getFailed() {
+		return this._failed;
+	}
+	
+	/**
+	 * @return the wall-clock duration of the whole replay, in nanoseconds
+	 */
+	public long getElapsedTime() {
+		return this._elapsedTime;
+	}
+	
+	/**
+	 * @return the total time spent dispatching events through the bridges, in nanoseconds
+	 */
+	public long getDispatchTime() {
+		return this._dispatchTime;
+	}
+	
+	/**
+	 * @return the longest single dispatch, in nanoseconds
+	 */
+	public long getMaxDispatchTime() {
+		return this._maxDispatchTime;
+	}
+	
+	/**
+	 * @return the exception thrown by the first failing handler, or <code>null</code>
+	 */
+	public Throwable getFirstFailure() {
+		return this._firstFailure;
+	}
+	
+	/**
+	 * @return the responses handed to the quit handler, in replay order
+	 */
+	public List<StandInQuitResponse> getQuitResponses() {
+		return this._quitResponses;
+	}
+	
+	@Override
+	public String toString() {
+		return "ReplayResult[replayed=" + this._replayed + ", skipped=" + this._skipped + ", failed=" + this._failed
+			+ ", elapsed=" + this._elapsedTime + "ns, dispatch=" + this._dispatchTime + "ns, maxDispatch=" + this._maxDispatchTime + "ns]";
+	}
+}
\ No newline at end of file
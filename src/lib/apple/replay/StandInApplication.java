@@ -0,0 +1,272 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.awt.Image;
+import java.awt.PopupMenu;
+import java.awt.Window;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.JMenuBar;
+
+import lib.apple.eawt.AboutHandler;
+import lib.apple.eawt.AppEventListener;
+import lib.apple.eawt.ApplicationListener;
+import lib.apple.eawt.OpenFilesHandler;
+import lib.apple.eawt.OpenURIHandler;
+import lib.apple.eawt.PreferencesHandler;
+import lib.apple.eawt.PrintFilesHandler;
+import lib.apple.eawt.QuitHandler;
+import lib.apple.eawt.QuitStrategy;
+
+/**
+ * Stand-in for the native <code>com.apple.eawt.Application</code>, used by {@link lib.apple.eawt.Application}
+ * when the {@value EventReplayer#STAND_IN_PROPERTY} system property is <code>true</code>.
+ *
+ * It keeps the bridges registered by {@link lib.apple.eawt.Application} so that {@link EventReplayer} can
+ * call them like the native side would, and otherwise just remembers the state it is given.
+ * Its public methods mirror the native class and are only meant to be called by the library.
+ *
+ * The registered objects are the library's own proxies, which do not implement <code>equals</code> and
+ * <code>hashCode</code> usefully, so they are only ever compared by identity.
+ */
+@SuppressWarnings("deprecation")
+public final class StandInApplication {
+	private static final StandInApplication INSTANCE = new StandInApplication();
+	private static volatile boolean bound = false;
+	
+	private final List<AppEventListener> _appEventListeners = new CopyOnWriteArrayList<>();
+	private final List<ApplicationListener> _applicationListeners = new CopyOnWriteArrayList<>();
+	private volatile AboutHandler _aboutHandler = null;
+	private volatile PreferencesHandler _preferencesHandler = null;
+	private volatile OpenFilesHandler _openFilesHandler = null;
+	private volatile PrintFilesHandler _printFilesHandler = null;
+	private volatile OpenURIHandler _openURIHandler = null;
+	private volatile QuitHandler _quitHandler = null;
+	private volatile QuitStrategy _quitStrategy = QuitStrategy.SYSTEM_EXIT_0;
+	private volatile boolean _suddenTermination = false;
+	private volatile PopupMenu _dockMenu = null;
+	private volatile Image _dockIconImage = null;
+	private volatile String _dockIconBadge = null;
+	private volatile JMenuBar _defaultMenuBar = null;
+	private volatile boolean _aboutMenuItemPresent = true;
+	private volatile boolean _aboutMenuEnabled = true;
+	private volatile boolean _preferencesMenuItemPresent = false;
+	private volatile boolean _preferencesMenuEnabled = false;
+	
+	private StandInApplication() { }
+	
+	/**
+	 * @return the single stand-in instance
+	 */
+	public static StandInApplication getApplication() {
+		bound = true;
+		return INSTANCE;
+	}
+	
+	static StandInApplication instance() {
+		return INSTANCE;
+	}
+	
+	// Only lib.apple.eawt.Application asks for the instance through getApplication().
+	static boolean isBound() {
+		return bound;
+	}
+	
+	public void addAppEventListener(final AppEventListener listener) {
+		this._appEventListeners.add(listener);
+	}
+	
+	public void removeAppEventListener(final AppEventListener listener) {
+		removeIdentical(this._appEventListeners, listener);
+	}
+	
+	public void setAboutHandler(final AboutHandler aboutHandler) {
+		this._aboutHandler = aboutHandler;
+	}
+	
+	public void setPreferencesHandler(final PreferencesHandler preferencesHandler) {
+		this._preferencesHandler = preferencesHandler;
+	}
+	
+	public void setOpenFileHandler(final OpenFilesHandler openFileHandler) {
+		this._openFilesHandler = openFileHandler;
+	}
+	
+	public void setPrintFileHandler(final PrintFilesHandler printFileHandler) {
+		this._printFilesHandler = printFileHandler;
+	}
+	
+	public void setOpenURIHandler(final OpenURIHandler openURIHandler) {
+		this._openURIHandler = openURIHandler;
+	}
+	
+	public void setQuitHandler(final QuitHandler quitHandler) {
+		this._quitHandler = quitHandler;
+	}
+	
+	public void setQuitStrategy(final QuitStrategy strategy) {
+		this._quitStrategy = strategy;
+	}
+	
+	public void enableSuddenTermination() {
+		this._suddenTermination = true;
+	}
+	
+	public void disableSuddenTermination() {
+		this._suddenTermination = false;
+	}
+	
+	public void requestActivation(final boolean allWindows) { }
+	
+	public void requestUserAttention(final boolean critical) { }
+	
+	public void openHelpViewer() { }
+	
+	public void setDockMenu(final PopupMenu menu) {
+		this._dockMenu = menu;
+	}
+	
+	public PopupMenu getDockMenu() {
+		return this._dockMenu;
+	}
+	
+	public void setDockIconImage(final Image image) {
+		this._dockIconImage = image;
+	}
+	
+	public Image getDockIconImage() {
+		return this._dockIconImage;
+	}
+	
+	public void setDockIconBadge(final String badge) {
+		this._dockIconBadge = badge;
+	}
+	
+	/**
+	 * @return the last badge set with {@link lib.apple.eawt.Application#setDockIconBadge(String)}
+	 */
+	public String getDockIconBadge() {
+		return this._dockIconBadge;
+	}
+	
+	public void setDefaultMenuBar(final JMenuBar menuBar) {
+		this._defaultMenuBar = menuBar;
+	}
+	
+	public void requestToggleFullScreen(final Window window) { }
+	
+	public void addApplicationListener(final ApplicationListener listener) {
+		this._applicationListeners.add(listener);
+	}
+	
+	public void removeApplicationListener(final ApplicationListener listener) {
+		removeIdentical(this._applicationListeners, listener);
+	}
+	
+	public void setEnabledPreferencesMenu(final boolean enable) {
+		this._preferencesMenuItemPresent |= enable;
+		this._preferencesMenuEnabled = enable;
+	}
+	
+	public void setEnabledAboutMenu(final boolean enable) {
+		this._aboutMenuItemPresent |= enable;
+		this._aboutMenuEnabled = enable;
+	}
+	
+	public boolean getEnabledPreferencesMenu() {
+		return this._preferencesMenuEnabled;
+	}
+	
+	public boolean getEnabledAboutMenu() {
+		return this._aboutMenuEnabled;
+	}
+	
+	public boolean isAboutMenuItemPresent() {
+		return this._aboutMenuItemPresent;
+	}
+	
+	public void addAboutMenuItem() {
+		this._aboutMenuItemPresent = true;
+	}
+	
+	public void removeAboutMenuItem() {
+		this._aboutMenuItemPresent = false;
+	}
+	
+	public boolean isPreferencesMenuItemPresent() {
+		return this._preferencesMenuItemPresent;
+	}
+	
+	public void addPreferencesMenuItem() {
+		this._preferencesMenuItemPresent = true;
+	}
+	
+	public void removePreferencesMenuItem() {
+		this._preferencesMenuItemPresent = false;
+	}
+	
+	List<AppEventListener> getAppEventListeners() {
+		return this._appEventListeners;
+	}
+	
+	List<ApplicationListener> getApplicationListeners() {
+		return this._applicationListeners;
+	}
+	
+	AboutHandler getAboutHandler() {
+		return this._aboutHandler;
+	}
+	
+	PreferencesHandler getPreferencesHandler() {
+		return this._preferencesHandler;
+	}
+	
+	OpenFilesHandler getOpenFilesHandler() {
+		return this._openFilesHandler;
+	}
+	
+	PrintFilesHandler getPrintFilesHandler() {
+		return this._printFilesHandler;
+	}
+	
+	OpenURIHandler getOpenURIHandler() {
+		return this._openURIHandler;
+	}
+	
+	QuitHandler getQuitHandler() {
+		return this._quitHandler;
+	}
+	
+	// List.remove(Object) would call equals on the proxies.
+	static <T> void removeIdentical(List<T> list, Object o) {
+		synchronized (list) {
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i) == o) {
+					list.remove(i);
+					return;
+				}
+			}
+		}
+	}
+}
\ No newline at end of file
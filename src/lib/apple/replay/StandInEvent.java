@@ -0,0 +1,162 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.awt.Window;
+import java.io.File;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import lib.apple.eawt.AppEvent;
+import lib.apple.eawt.ApplicationEvent;
+import lib.apple.eawt.event.GesturePhaseEvent;
+import lib.apple.eawt.event.MagnificationEvent;
+import lib.apple.eawt.event.RotationEvent;
+import lib.apple.eawt.event.SwipeEvent;
+
+/**
+ * Stand-in for the native <code>com.apple.eawt</code> and <code>com.apple.eawt.event</code> event objects.
+ *
+ * The library bridges only call event methods by name, so a single class carrying every payload can stand in for
+ * all of the native event types. Handlers never see this class, they receive the usual event wrapper.
+ */
+@SuppressWarnings("deprecation")
+public final class StandInEvent implements AppEvent.OpenFilesEvent, AppEvent.PrintFilesEvent, AppEvent.OpenURIEvent,
+AppEvent.AboutEvent, AppEvent.PreferencesEvent, AppEvent.QuitEvent, AppEvent.AppReOpenedEvent, AppEvent.AppForegroundEvent,
+AppEvent.AppHiddenEvent, AppEvent.UserSessionEvent, AppEvent.ScreenSleepEvent, AppEvent.SystemSleepEvent,
+AppEvent.FullScreenEvent, ApplicationEvent, GesturePhaseEvent, MagnificationEvent, RotationEvent, SwipeEvent {
+	private final Object _source;
+	private List<File> _files = Collections.emptyList();
+	private String _searchTerm = null;
+	private URI _uri = null;
+	private Window _window = null;
+	private String _filename = null;
+	private double _magnification = 0.0;
+	private double _rotation = 0.0;
+	private boolean _handled = false;
+	private boolean _consumed = false;
+	
+	/**
+	 * @param source the object the event is reported to have occurred on
+	 */
+	public StandInEvent(final Object source) {
+		this._source = source;
+	}
+	
+	StandInEvent withFiles(List<File> files) {
+		this._files = files;
+		return this;
+	}
+	
+	StandInEvent withURI(URI uri) {
+		this._uri = uri;
+		return this;
+	}
+	
+	StandInEvent withWindow(Window window) {
+		this._window = window;
+		return this;
+	}
+	
+	StandInEvent withFilename(String filename) {
+		this._filename = filename;
+		return this;
+	}
+	
+	StandInEvent withMagnification(double magnification) {
+		this._magnification = magnification;
+		return this;
+	}
+	
+	StandInEvent withRotation(double rotation) {
+		this._rotation = rotation;
+		return this;
+	}
+	
+	@Override
+	public Object getSource() {
+		return this._source;
+	}
+	
+	@Override
+	public List<File> getFiles() {
+		return this._files;
+	}
+	
+	@Override
+	public String getSearchTerm() {
+		return this._searchTerm;
+	}
+	
+	@Override
+	public URI getURI() {
+		return this._uri;
+	}
+	
+	@Override
+	public Window getWindow() {
+		return this._window;
+	}
+	
+	@Override
+	public String getFilename() {
+		return this._filename;
+	}
+	
+	@Override
+	public boolean isHandled() {
+		return this._handled;
+	}
+	
+	@Override
+	public void setHandled(final boolean state) {
+		this._handled = state;
+	}
+	
+	@Override
+	public double getMagnification() {
+		return this._magnification;
+	}
+	
+	@Override
+	public double getRotation() {
+		return this._rotation;
+	}
+	
+	@Override
+	public void consume() {
+		this._consumed = true;
+	}
+	
+	/**
+	 * @return <code>true</code> if a gesture listener consumed this event
+	 */
+	public boolean isConsumed() {
+		return this._consumed;
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[source=" + this._source + "]";
+	}
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.awt.Window;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lib.apple.eawt.FullScreenListener;
+
+/**
+ * Stand-in for the native <code>com.apple.eawt.FullScreenUtilities</code>, used by
+ * {@link lib.apple.eawt.FullScreenUtilities} when the {@value EventReplayer#STAND_IN_PROPERTY} system property is <code>true</code>.
+ *
+ * Its public methods mirror the native class and are only meant to be called by the library.
+ */
+public final class StandInFullScreenUtilities {
+	private static final ConcurrentMap<Window, List<FullScreenListener>> LISTENERS = new ConcurrentHashMap<>();
+	
+	@Deprecated
+	private StandInFullScreenUtilities() {
+		throw new InternalError();
+	}
+	
+	public static void setWindowCanFullScreen(final Window window, final boolean canFullScreen) { }
+	
+	public static void addFullScreenListenerTo(final Window window, final FullScreenListener listener) {
+		List<FullScreenListener> listeners = LISTENERS.get(window);
+		if (listeners == null) {
+			listeners = new CopyOnWriteArrayList<>();
+			List<FullScreenListener> prev = LISTENERS.putIfAbsent(window, listeners);
+			if (prev != null) {
+				listeners = prev;
+			}
+		}
+		listeners.add(listener);
+	}
+	
+	public static void removeFullScreenListenerFrom(final Window window, final FullScreenListener listener) {
+		List<FullScreenListener> listeners = LISTENERS.get(window);
+		if (listeners != null) {
+			StandInApplication.removeIdentical(listeners, listener);
+		}
+	}
+	
+	static Map<Window, List<FullScreenListener>> getListeners() {
+		return LISTENERS;
+	}
+}
\ No newline at end of file
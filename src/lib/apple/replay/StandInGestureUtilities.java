@@ -0,0 +1,83 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.JComponent;
+
+import lib.apple.eawt.event.GestureListener;
+
+/**
+ * Stand-in for the native <code>com.apple.eawt.event.GestureUtilities</code>, used by
+ * {@link lib.apple.eawt.event.GestureUtilities} when the {@value EventReplayer#STAND_IN_PROPERTY} system property is <code>true</code>.
+ *
+ * It keeps the bridges attached to each component so that {@link EventReplayer} can call them like the native side would.
+ * Its public methods mirror the native class and are only meant to be called by the library.
+ */
+public final class StandInGestureUtilities {
+	private static final ConcurrentMap<JComponent, List<GestureListener>> LISTENERS = new ConcurrentHashMap<>();
+	
+	@Deprecated
+	private StandInGestureUtilities() {
+		throw new InternalError();
+	}
+	
+	public static void addGestureListenerTo(final JComponent component, final GestureListener listener) {
+		List<GestureListener> listeners = LISTENERS.get(component);
+		if (listeners == null) {
+			listeners = new CopyOnWriteArrayList<>();
+			List<GestureListener> prev = LISTENERS.putIfAbsent(component, listeners);
+			if (prev != null) {
+				listeners = prev;
+			}
+		}
+		listeners.add(listener);
+	}
+	
+	public static void removeGestureListenerFrom(final JComponent component, final GestureListener listener) {
+		List<GestureListener> listeners = LISTENERS.get(component);
+		if (listeners != null) {
+			StandInApplication.removeIdentical(listeners, listener);
+		}
+	}
+	
+	/**
+	 * @return the components which currently have gesture listeners attached
+	 */
+	public static List<JComponent> getComponents() {
+		List<JComponent> components = new ArrayList<>();
+		for (Map.Entry<JComponent, List<GestureListener>> entry : LISTENERS.entrySet()) {
+			if (!entry.getValue().isEmpty()) components.add(entry.getKey());
+		}
+		return components;
+	}
+	
+	static List<GestureListener> getListeners(JComponent component) {
+		return LISTENERS.get(component);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import lib.apple.eawt.QuitResponse;
+
+/**
+ * Stand-in for the native <code>com.apple.eawt.QuitResponse</code>. A replayed quit never exits the JVM;
+ * the response only remembers what the handler answered.
+ */
+public final class StandInQuitResponse implements QuitResponse {
+	/**
+	 * The possible answers of a quit handler.
+	 */
+	public static enum Answer {
+		PENDING, PERFORMED, CANCELED
+	}
+	
+	private final CountDownLatch _answered = new CountDownLatch(1);
+	private volatile Answer _answer = Answer.PENDING;
+	
+	@Override
+	public void performQuit() {
+		answer(Answer.PERFORMED);
+	}
+	
+	@Override
+	public void cancelQuit() {
+		answer(Answer.CANCELED);
+	}
+	
+	/**
+	 * @return the answer of the handler so far
+	 */
+	public Answer getAnswer() {
+		return this._answer;
+	}
+	
+	/**
+	 * Waits for the handler to answer, as a quit handler may answer after it has returned.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of <code>timeout</code>
+	 * @return the answer, or {@link Answer#PENDING} if the handler did not answer in time
+	 * @throws InterruptedException if the current thread is interrupted while waiting
+	 */
+	public Answer awaitAnswer(final long timeout, final TimeUnit unit) throws InterruptedException {
+		this._answered.await(timeout, unit);
+		return this._answer;
+	}
+	
+	private synchronized void answer(Answer answer) {
+		if (this._answer == Answer.PENDING) {
+			this._answer = answer;
+			this._answered.countDown();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+/*
+ * Java/Mac OS X Integration - Integrate Java programs with Mac OS X
+ * Copyright (C) 2012  Yinon Michaeli
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Contact by e-mail if you discover any bugs or if you have a suggestion
+ * to myinon2005@hotmail.com
+ */
+
+package lib.apple.replay;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import lib.apple.eawt.event.GestureAdapter;
+import lib.apple.eawt.event.GestureListener;
+import lib.apple.eawt.event.GesturePhaseEvent;
+import lib.apple.eawt.event.GesturePhaseListener;
+import lib.apple.eawt.event.GestureUtilities;
+import lib.apple.eawt.event.MagnificationEvent;
+import lib.apple.eawt.event.MagnificationListener;
+import lib.apple.eawt.event.RotationEvent;
+import lib.apple.eawt.event.RotationListener;
+import lib.apple.eawt.event.SwipeEvent;
+import lib.apple.eawt.event.SwipeListener;
+
+/**
+ * Checks that a {@link GestureAdapter} attached with {@link GestureUtilities#addGestureListenerTo(JComponent, GestureListener)}
+ * is bridged for all four kinds of gesture, and that removing it detaches every bridge.
+ *
+ * Runs against the stand-in, with <code>-Djava.awt.headless=true</code>. Exits with an {@link AssertionError} on failure.
+ */
+public final class GestureAdapterDeliveryCheck {
+	@Deprecated
+	private GestureAdapterDeliveryCheck() {
+		throw new InternalError();
+	}
+	
+	public static void main(String[] args) {
+		EventReplayer.installStandIn();
+		
+		final Set<String> received = new TreeSet<>();
+		GestureAdapter adapter = new GestureAdapter() {
+			@Override
+			public void gestureBegan(GesturePhaseEvent e) {
+				received.add("phase");
+			}
+			
+			@Override
+			public void magnify(MagnificationEvent e) {
+				received.add("magnify");
+			}
+			
+			@Override
+			public void rotate(RotationEvent e) {
+				received.add("rotate");
+			}
+			
+			@Override
+			public void swipedLeft(SwipeEvent e) {
+				received.add("swipe");
+			}
+		};
+		JComponent component = new JPanel();
+		GestureUtilities.addGestureListenerTo(component, adapter);
+		
+		StandInEvent event = new StandInEvent(component);
+		for (GestureListener l : StandInGestureUtilities.getListeners(component)) {
+			if (l instanceof GesturePhaseListener) ((GesturePhaseListener) l).gestureBegan(event);
+			if (l instanceof MagnificationListener) ((MagnificationListener) l).magnify(event.withMagnification(0.1));
+			if (l instanceof RotationListener) ((RotationListener) l).rotate(event.withRotation(10.0));
+			if (l instanceof SwipeListener) ((SwipeListener) l).swipedLeft(event);
+		}
+		List<String> expected = Arrays.asList("magnify", "phase", "rotate", "swipe");
+		if (!received.equals(new TreeSet<>(expected)))
+			throw new AssertionError("Expected " + expected + " but received " + received);
+		
+		GestureUtilities.removeGestureListenerFrom(component, adapter);
+		if (!StandInGestureUtilities.getListeners(component).isEmpty())
+			throw new AssertionError("Bridges left after removal: " + StandInGestureUtilities.getListeners(component));
+		System.out.println("GestureAdapter received " + received);
+	}
+}
\ No newline at end of file